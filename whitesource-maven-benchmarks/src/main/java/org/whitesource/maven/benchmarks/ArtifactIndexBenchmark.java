@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven.benchmarks;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.whitesource.maven.ArtifactIndex;
+import org.whitesource.maven.utils.dependencies.impl.eclipse.SyntheticGraphs;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing the resolved artifacts of a module and looking up the file of each graph node, by number of artifacts.
+ *
+ * <p>
+ *     Lookups mix exact coordinates, coordinates relying on the default classifier and type, and misses.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class ArtifactIndexBenchmark {
+
+    /* --- Static members --- */
+
+    private static final String JAR = "jar";
+
+    /* --- Parameters --- */
+
+    @Param({"100", "1000"})
+    public int artifacts;
+
+    /* --- Private Members --- */
+
+    private MavenProject project;
+    private ArtifactIndex index;
+    private String[][] lookups;
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SyntheticGraphs.SEED);
+        DefaultArtifactHandler handler = new DefaultArtifactHandler(JAR);
+        Set<Artifact> direct = new LinkedHashSet<Artifact>();
+        Set<Artifact> all = new LinkedHashSet<Artifact>();
+        lookups = new String[artifacts][];
+        for (int i = 0; i < artifacts; i++) {
+            String groupId = "org.example.group" + (i % 20);
+            String artifactId = "artifact-" + i;
+            String version = "1." + (i % 7) + ".0";
+            String classifier = i % 10 == 0 ? "tests" : null;
+            Artifact artifact = new DefaultArtifact(groupId, artifactId, version, "compile", JAR, classifier, handler);
+            artifact.setFile(new File("repository", artifactId + ".jar"));
+            all.add(artifact);
+            if (i % 5 == 0) {
+                direct.add(new DefaultArtifact(groupId, artifactId, version, "compile", JAR, classifier, handler));
+            }
+
+            switch (random.nextInt(3)) {
+                case 0:
+                    lookups[i] = new String[] {groupId, artifactId, version, classifier, JAR};
+                    break;
+                case 1:
+                    lookups[i] = new String[] {groupId, artifactId, version, classifier == null ? "" : classifier, null};
+                    break;
+                default:
+                    lookups[i] = new String[] {groupId, artifactId, "2.0.0", classifier, JAR};
+                    break;
+            }
+        }
+
+        project = new MavenProject();
+        project.setDependencyArtifacts(direct);
+        project.setArtifacts(all);
+        index = new ArtifactIndex(project);
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public ArtifactIndex create() {
+        return new ArtifactIndex(project);
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole) {
+        for (String[] lookup : lookups) {
+            blackhole.consume(index.getFile(lookup[0], lookup[1], lookup[2], lookup[3], lookup[4]));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.whitesource.maven.utils.checksum.FileChannelChecksumCalculator;
+import org.whitesource.maven.utils.dependencies.impl.eclipse.SyntheticGraphs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SHA-1 of a single artifact file, by file size.
+ *
+ * <p>
+ *     The file is written once per trial with seeded content and is read back from the page cache,
+ *     so the results measure hashing and copying rather than the disk.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class ChecksumBenchmark {
+
+    /* --- Static members --- */
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /* --- Parameters --- */
+
+    /**
+     * Around the small file threshold of the calculator, a typical jar and a large distribution.
+     */
+    @Param({"1024", "65536", "1048576", "33554432"})
+    public int fileSize;
+
+    /* --- Private Members --- */
+
+    private File file;
+    private FileChannelChecksumCalculator fastestProvider;
+    private FileChannelChecksumCalculator defaultProvider;
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("whitesource-benchmark-", ".jar");
+        Random random = new Random(SyntheticGraphs.SEED);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            for (int written = 0; written < fileSize; written += chunk.length) {
+                random.nextBytes(chunk);
+                fos.write(chunk, 0, Math.min(chunk.length, fileSize - written));
+            }
+        } finally {
+            fos.close();
+        }
+        fastestProvider = new FileChannelChecksumCalculator();
+        defaultProvider = new FileChannelChecksumCalculator(null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public String fastestProvider() throws IOException {
+        return fastestProvider.calculateSHA1(file);
+    }
+
+    @Benchmark
+    public String defaultProvider() throws IOException {
+        return defaultProvider.calculateSHA1(file);
+    }
+}
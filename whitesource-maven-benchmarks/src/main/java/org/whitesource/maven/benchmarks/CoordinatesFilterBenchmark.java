@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.whitesource.maven.utils.dependencies.impl.eclipse.SyntheticGraphs;
+import org.whitesource.maven.utils.filter.CoordinatesFilter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching coordinates against include and exclude patterns, by number of patterns.
+ *
+ * <p>
+ *     Patterns mix literals, artifactId only wildcards and full coordinates with wildcards,
+ *     coordinates are drawn from the same pool as {@link SyntheticGraphs}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class CoordinatesFilterBenchmark {
+
+    /* --- Static members --- */
+
+    private static final int COORDINATES = 1000;
+
+    /* --- Parameters --- */
+
+    @Param({"1", "10", "50"})
+    public int patterns;
+
+    /* --- Private Members --- */
+
+    private String[] includes;
+    private String[] excludes;
+    private String[][] coordinates;
+    private CoordinatesFilter filter;
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SyntheticGraphs.SEED);
+        includes = new String[] {"org.example.*"};
+        excludes = new String[patterns];
+        for (int i = 0; i < patterns; i++) {
+            int id = random.nextInt(COORDINATES);
+            switch (i % 3) {
+                case 0:
+                    excludes[i] = "org.example.group" + (id % 20) + ":artifact-" + id + ":1." + (id % 7) + ".0";
+                    break;
+                case 1:
+                    excludes[i] = "*-" + id;
+                    break;
+                default:
+                    excludes[i] = "org.example.group" + (id % 20) + ":artifact-" + (id % 100) + "*:1.*";
+                    break;
+            }
+        }
+
+        coordinates = new String[COORDINATES][];
+        for (int i = 0; i < COORDINATES; i++) {
+            int id = random.nextInt(COORDINATES);
+            coordinates[i] = new String[] {"org.example.group" + (id % 20), "artifact-" + id, "1." + (id % 7) + ".0"};
+        }
+        filter = new CoordinatesFilter(includes, excludes);
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public CoordinatesFilter compile() {
+        return new CoordinatesFilter(includes, excludes);
+    }
+
+    @Benchmark
+    public void accept(Blackhole blackhole) {
+        for (String[] coordinate : coordinates) {
+            blackhole.consume(filter.accept(coordinate[0], coordinate[1], coordinate[2]));
+        }
+    }
+}
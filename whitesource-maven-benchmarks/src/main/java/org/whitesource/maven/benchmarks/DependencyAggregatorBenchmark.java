@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.maven.DependencyAggregator;
+import org.whitesource.maven.DependencySubtreeCache;
+import org.whitesource.maven.utils.dependencies.CompactDependencyGraph;
+import org.whitesource.maven.utils.dependencies.impl.eclipse.SyntheticGraphs;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flattening the dependency trees of a multi module build into a single list, by number of modules.
+ *
+ * <p>
+ *     Modules are converted through one {@link DependencySubtreeCache}, as in an aggregated update,
+ *     so their trees share subtree instances and draw their coordinates from the same pool.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class DependencyAggregatorBenchmark {
+
+    /* --- Static members --- */
+
+    private static final int MODULE_SIZE = 300;
+
+    /* --- Parameters --- */
+
+    @Param({"10", "100"})
+    public int modules;
+
+    /* --- Private Members --- */
+
+    private List<List<DependencyInfo>> moduleDependencies;
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DependencySubtreeCache subtreeCache = new DependencySubtreeCache();
+        SyntheticGraphs.Shape[] shapes = SyntheticGraphs.Shape.values();
+        moduleDependencies = new ArrayList<List<DependencyInfo>>(modules);
+        for (int i = 0; i < modules; i++) {
+            CompactDependencyGraph graph = SyntheticGraphs.createCompact(shapes[i % shapes.length], MODULE_SIZE, SyntheticGraphs.SEED + i);
+            moduleDependencies.add(subtreeCache.convert(graph, SyntheticGraphs.directDependencies(graph), null, null,
+                    new HashMap<File, Collection<DependencyInfo>>()));
+        }
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public Collection<DependencyInfo> aggregate() {
+        DependencyAggregator aggregator = new DependencyAggregator();
+        for (List<DependencyInfo> dependencies : moduleDependencies) {
+            aggregator.addDependencies(dependencies);
+        }
+        return aggregator.getDependencies();
+    }
+}
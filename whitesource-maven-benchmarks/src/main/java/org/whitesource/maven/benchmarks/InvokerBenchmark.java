@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.whitesource.maven.utils.Invoker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reflective calls through {@link Invoker}, compared to a direct call of the same method and to a plain reflective call
+ * looking the method up every time. The contended variants share the method cache between threads, run them on a
+ * machine with at least as many cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class InvokerBenchmark {
+
+    /* --- Private Members --- */
+
+    private Target target;
+    private String name;
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        target = new Target();
+        name = "project";
+        target.setName(name);
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public Object direct() {
+        return target.getName();
+    }
+
+    @Benchmark
+    public Object uncached() throws Exception {
+        return target.getClass().getMethod("getName").invoke(target);
+    }
+
+    @Benchmark
+    public Object invoke() {
+        return Invoker.invoke(target, "getName");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object uncachedContended() throws Exception {
+        return target.getClass().getMethod("getName").invoke(target);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object invokeContended() {
+        return Invoker.invoke(target, "getName");
+    }
+
+    @Benchmark
+    public Object invokeDeclared() {
+        return Invoker.invoke(Target.class, target, "getName");
+    }
+
+    @Benchmark
+    public Object invokeWithArgument() {
+        return Invoker.invoke(target, "setName", String.class, name);
+    }
+
+    /* --- Nested classes --- */
+
+    public static class Target {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
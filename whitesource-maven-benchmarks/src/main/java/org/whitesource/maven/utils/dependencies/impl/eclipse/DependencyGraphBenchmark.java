@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven.utils.dependencies.impl.eclipse;
+
+import org.eclipse.aether.graph.DependencyNode;
+import org.openjdk.jmh.annotations.*;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.maven.DependencySubtreeCache;
+import org.whitesource.maven.utils.dependencies.AetherDependencyNode;
+import org.whitesource.maven.utils.dependencies.CompactDependencyGraph;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of a resolved Aether graph into {@link DependencyInfo}s, by graph shape and size.
+ *
+ * <p>
+ *     {@link #convert()} is the path taken for every module: the resolved graph is compacted and then converted
+ *     by a {@link DependencySubtreeCache}. {@link #adapt()} wraps the graph with the {@link EclipseAetherDependencyNode}
+ *     adapters, as {@link org.whitesource.maven.utils.dependencies.DependencyGraphFactory#getAetherDependencyGraphRootNode}
+ *     does.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class DependencyGraphBenchmark {
+
+    /* --- Parameters --- */
+
+    @Param({"WIDE", "DEEP", "DIAMOND"})
+    public SyntheticGraphs.Shape shape;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    /* --- Private Members --- */
+
+    private DependencyNode root;
+    private CompactDependencyGraph graph;
+    private List<Integer> directDependencies;
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        root = SyntheticGraphs.create(shape, size, SyntheticGraphs.SEED);
+        graph = EclipseAetherDependencyGraphBuilder.toCompactGraph(root);
+        directDependencies = SyntheticGraphs.directDependencies(graph);
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public AetherDependencyNode adapt() {
+        return new EclipseAetherDependencyNode(root);
+    }
+
+    @Benchmark
+    public CompactDependencyGraph compact() {
+        return EclipseAetherDependencyGraphBuilder.toCompactGraph(root);
+    }
+
+    /**
+     * Conversion of an already compacted graph, with a fresh cache as for a single module build.
+     */
+    @Benchmark
+    public List<DependencyInfo> convertCompacted() {
+        return new DependencySubtreeCache().convert(graph, directDependencies, null, null,
+                new HashMap<File, Collection<DependencyInfo>>());
+    }
+
+    @Benchmark
+    public List<DependencyInfo> convert() {
+        CompactDependencyGraph compacted = EclipseAetherDependencyGraphBuilder.toCompactGraph(root);
+        return new DependencySubtreeCache().convert(compacted, SyntheticGraphs.directDependencies(compacted), null, null,
+                new HashMap<File, Collection<DependencyInfo>>());
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven.utils.dependencies.impl.eclipse;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
+import org.whitesource.maven.utils.dependencies.CompactDependencyGraph;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Builds resolved Aether graphs of a given shape, the same seed always builds the same graph.
+ * Kept in the package of the Eclipse Aether adapters so graphs can be converted without resolving a project.
+ *
+ * <p>
+ *     Coordinates are drawn from a pool as large as the requested size, so a coordinate may appear in several places
+ *     of a graph, as it does in real builds. Diamond graphs share node instances between parents,
+ *     walking them as a tree visits a shared subtree once for each path leading to it.
+ * </p>
+ */
+public final class SyntheticGraphs {
+
+    /* --- Static members --- */
+
+    public static final long SEED = 42L;
+
+    private static final String TYPE = "type";
+    private static final String JAR = "jar";
+    private static final String[] SCOPES = {"compile", "compile", "compile", "runtime", "provided", "test"};
+    private static final int GROUPS = 20;
+    private static final int WIDE_LEAVES = 2;
+    private static final int DIAMOND_WIDTH = 4;
+
+    /* --- Static methods --- */
+
+    /**
+     * @param size Number of nodes to create, diamond graphs are completed to a whole layer.
+     */
+    public static DependencyNode create(Shape shape, int size, long seed) {
+        Random random = new Random(seed);
+        DependencyNode root = newNode(new DefaultDependencyNode(new DefaultArtifact("org.example:project:1.0")));
+        switch (shape) {
+            case WIDE:
+                for (int i = 0; i < size / (WIDE_LEAVES + 1); i++) {
+                    DependencyNode direct = newNode(random, size);
+                    for (int j = 0; j < WIDE_LEAVES; j++) {
+                        direct.getChildren().add(newNode(random, size));
+                    }
+                    root.getChildren().add(direct);
+                }
+                break;
+            case DEEP:
+                DependencyNode parent = root;
+                for (int i = 0; i < size; i++) {
+                    DependencyNode node = newNode(random, size);
+                    parent.getChildren().add(node);
+                    parent = node;
+                }
+                break;
+            case DIAMOND:
+                List<DependencyNode> layer = Collections.singletonList(root);
+                int expanded = 0;
+                int paths = 1;
+                while (expanded < size) {
+                    List<DependencyNode> next = new ArrayList<DependencyNode>(DIAMOND_WIDTH);
+                    for (int i = 0; i < DIAMOND_WIDTH; i++) {
+                        next.add(newNode(random, size));
+                    }
+                    for (DependencyNode node : layer) {
+                        node.getChildren().addAll(next);
+                    }
+                    paths *= DIAMOND_WIDTH;
+                    expanded += paths;
+                    layer = next;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+        return root;
+    }
+
+    /**
+     * @return The graph of {@link #create(Shape, int, long)} in compact form.
+     */
+    public static CompactDependencyGraph createCompact(Shape shape, int size, long seed) {
+        return EclipseAetherDependencyGraphBuilder.toCompactGraph(create(shape, size, seed));
+    }
+
+    /**
+     * @return The direct dependencies of the project, in order.
+     */
+    public static List<Integer> directDependencies(CompactDependencyGraph graph) {
+        List<Integer> roots = new ArrayList<Integer>();
+        for (int node = graph.getFirstChild(CompactDependencyGraph.ROOT); node != CompactDependencyGraph.NONE; node = graph.getNextSibling(node)) {
+            roots.add(node);
+        }
+        return roots;
+    }
+
+    /* --- Private methods --- */
+
+    private static DependencyNode newNode(Random random, int pool) {
+        int id = random.nextInt(pool);
+        Artifact artifact = new DefaultArtifact("org.example.group" + (id % GROUPS), "artifact-" + id,
+                id % 10 == 0 ? "tests" : "", JAR, "1." + (id % 7) + ".0", Collections.singletonMap(TYPE, JAR), (File) null);
+        List<Exclusion> exclusions = new ArrayList<Exclusion>();
+        if (random.nextInt(4) == 0) {
+            int excluded = random.nextInt(pool);
+            exclusions.add(new Exclusion("org.example.group" + (excluded % GROUPS), "artifact-" + excluded, "*", "*"));
+        }
+        Dependency dependency = new Dependency(artifact, SCOPES[random.nextInt(SCOPES.length)], random.nextInt(10) == 0, exclusions);
+        return newNode(new DefaultDependencyNode(dependency));
+    }
+
+    private static DependencyNode newNode(DefaultDependencyNode node) {
+        node.setChildren(new ArrayList<DependencyNode>());
+        return node;
+    }
+
+    // prevent instantiation
+    private SyntheticGraphs() {}
+
+    /* --- Nested classes --- */
+
+    public enum Shape {
+        /** Many direct dependencies with a couple of transitive dependencies each. */
+        WIDE,
+        /** A single chain of transitive dependencies. */
+        DEEP,
+        /** Layers of dependencies, each of them depending on every dependency of the next layer. */
+        DIAMOND
+    }
+}
@@ -5,22 +5,40 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Exclusion;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.DependencyResolutionException;
 import org.apache.maven.project.MavenProject;
-import org.whitesource.agent.api.ChecksumUtils;
 import org.whitesource.agent.api.dispatch.BaseCheckPoliciesResult;
+import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
+import org.whitesource.agent.api.dispatch.UpdateInventoryResult;
 import org.whitesource.agent.api.model.AgentProjectInfo;
 import org.whitesource.agent.api.model.Coordinates;
 import org.whitesource.agent.api.model.DependencyInfo;
 import org.whitesource.agent.api.model.ExclusionInfo;
+import org.whitesource.agent.api.model.PolicyCheckResourceNode;
+import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.agent.client.WssServiceException;
 import org.whitesource.agent.report.PolicyCheckReport;
+import org.whitesource.maven.utils.Invoker;
+import org.whitesource.maven.utils.checksum.ChecksumCalculator;
+import org.whitesource.maven.utils.checksum.FileChannelChecksumCalculator;
+import org.whitesource.maven.utils.checksum.ParallelChecksumExecutor;
+import org.whitesource.maven.utils.checksum.PersistentChecksumCache;
+import org.whitesource.maven.utils.checksum.SidecarChecksumCalculator;
+import org.whitesource.maven.utils.checksum.SingleFlightChecksumCalculator;
 import org.whitesource.maven.utils.dependencies.*;
+import org.whitesource.maven.utils.filter.CoordinatesFilter;
+import org.whitesource.maven.utils.filter.CoordinatesPatterns;
+import org.whitesource.maven.utils.jfr.EventSpan;
+import org.whitesource.maven.utils.jfr.FlightRecorderEvents;
 
 import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Concrete implementation holding common functionality to all goals in this plugin that use the agent API.
@@ -74,6 +92,12 @@ public abstract class AgentMojo extends WhitesourceMojo {
     @Parameter( alias = "outputDirectory", property = Constants.OUTPUT_DIRECTORY, required = false, defaultValue = "${project.reporting.outputDirectory}")
     protected File outputDirectory;
 
+    /**
+     * Optional. Directory where the plugin keeps state between builds.
+     */
+    @Parameter(alias = "stateDirectory", property = Constants.STATE_DIRECTORY, required = false, defaultValue = "${project.build.directory}/whitesource")
+    protected File stateDirectory;
+
     /**
      * Optional. Unique identifier of the White Source project to update.
      * If omitted, default naming convention will apply.
@@ -101,17 +125,34 @@ public abstract class AgentMojo extends WhitesourceMojo {
     protected boolean ignore;
 
     /**
-     * Optional. Only modules with an artifactId matching one of these patterns will be processed by the plugin.
+     * Optional. Only modules matching one of these patterns will be processed by the plugin.
+     * Patterns have the form groupId:artifactId:version with '*' as a wildcard. A pattern without ':' matches the artifactId
+     * and is a regular expression, as in earlier versions, where '.' is a literal dot and '*' a wildcard, e.g. foo-(api|impl).
      */
     @Parameter(alias = "includes", property = Constants.INCLUDES, required = false, defaultValue = "")
     protected String[] includes;
 
     /**
-     * Optional. Modules with an artifactId matching any of these patterns will not be processed by the plugin.
+     * Optional. Modules matching any of these patterns will not be processed by the plugin. Overrides any include patterns.
+     * Uses the same pattern format as {@link AgentMojo#includes}.
      */
     @Parameter(alias = "excludes", property = Constants.EXCLUDES, required = false, defaultValue = "")
     protected String[] excludes;
 
+    /**
+     * Optional. Only dependencies matching one of these patterns will be reported, along with their matching dependencies.
+     * Uses the same pattern format as {@link AgentMojo#includes}.
+     */
+    @Parameter(alias = "dependencyIncludes", property = Constants.DEPENDENCY_INCLUDES, required = false)
+    protected String[] dependencyIncludes;
+
+    /**
+     * Optional. Dependencies matching any of these patterns will not be reported, nor any of their transitive dependencies.
+     * Excluded dependencies are neither hashed nor sent to the server.
+     */
+    @Parameter(alias = "dependencyExcludes", property = Constants.DEPENDENCY_EXCLUDES, required = false)
+    protected String[] dependencyExcludes;
+
     /**
      * Optional. Scopes to be ignored (default "test" and "provided").
      */
@@ -127,6 +168,48 @@ public abstract class AgentMojo extends WhitesourceMojo {
     @Parameter(defaultValue = "${reactorProjects}", required = true, readonly = true)
     protected Collection<MavenProject> reactorProjects;
 
+    /**
+     * Optional. Number of modules to process concurrently, 1 processes the modules one after the other.
+     * Results are reported in reactor order regardless of this setting.
+     */
+    @Parameter(alias = "moduleParallelism", property = Constants.MODULE_PARALLELISM, required = false, defaultValue = "1")
+    protected int moduleParallelism;
+
+    /**
+     * Optional. Set to true to process modules on virtual threads, when running on a JVM that supports them.
+     *
+     * Important: Only used if {@link AgentMojo#moduleParallelism} is greater than 1.
+     */
+    @Parameter(alias = "useVirtualThreads", property = Constants.USE_VIRTUAL_THREADS, required = false, defaultValue = "false")
+    protected boolean useVirtualThreads;
+
+    /**
+     * Optional. Maximum number of modules waiting between two stages of a pipelined update.
+     */
+    @Parameter(alias = "pipelineQueueCapacity", property = Constants.PIPELINE_QUEUE_CAPACITY, required = false, defaultValue = "4")
+    protected int pipelineQueueCapacity;
+
+    /**
+     * Optional. Maximum number of modules sent in a single request, 0 sends all modules in one request.
+     */
+    @Parameter(alias = "requestBatchMaxModules", property = Constants.REQUEST_BATCH_MAX_MODULES, required = false, defaultValue = "0")
+    protected int requestBatchMaxModules;
+
+    /**
+     * Optional. Maximum estimated size in megabytes of a single request, 0 for no limit.
+     * A module larger than this is sent in a request of its own, policy checks split it further.
+     */
+    @Parameter(alias = "requestBatchMaxMegabytes", property = Constants.REQUEST_BATCH_MAX_MEGABYTES, required = false, defaultValue = "0")
+    protected int requestBatchMaxMegabytes;
+
+    /**
+     * Optional. Maximum number of batched requests in flight.
+     *
+     * Important: Only used if {@link AgentMojo#requestBatchMaxModules} or {@link AgentMojo#requestBatchMaxMegabytes} are set.
+     */
+    @Parameter(alias = "requestParallelism", property = Constants.REQUEST_PARALLELISM, required = false, defaultValue = "2")
+    protected int requestParallelism;
+
     /* --- Aggregate Modules Parameters --- */
 
     /**
@@ -155,6 +238,131 @@ public abstract class AgentMojo extends WhitesourceMojo {
     @Parameter(alias = "requesterEmail", property = Constants.REQUESTER_EMAIL, required = false)
     protected String requesterEmail;
 
+    /**
+     * Optional. Set to true to write timings and counters of each phase and module of the run
+     * into {@link Constants#METRICS_FILE} in the {@link AgentMojo#outputDirectory}.
+     */
+    @Parameter(alias = "writeMetrics", property = Constants.WRITE_METRICS, required = false, defaultValue = "false")
+    protected boolean writeMetrics;
+
+    /**
+     * Optional. File to write the metrics of the run to in the Prometheus text format,
+     * for instance in the directory of the node exporter textfile collector.
+     */
+    @Parameter(alias = "metricsPrometheusFile", property = Constants.METRICS_PROMETHEUS_FILE, required = false)
+    protected File metricsPrometheusFile;
+
+    /**
+     * Optional. Set to true to write the request into the {@link AgentMojo#requestDirectory} instead of sending it.
+     * Written requests are sent later by the upload goal.
+     */
+    @Parameter(alias = "offline", property = Constants.OFFLINE, required = false, defaultValue = "false")
+    protected boolean offline;
+
+    /**
+     * Optional. Directory offline requests are written to.
+     * Requests hold the organization token, so keep this directory out of published sites and archives.
+     */
+    @Parameter(alias = "requestDirectory", property = Constants.REQUEST_DIRECTORY, required = false, defaultValue = "${project.build.directory}/whitesource/requests")
+    protected File requestDirectory;
+
+    /* --- Policy Check Cache Parameters --- */
+
+    /**
+     * Optional. Set to true to reuse the result of an identical policy check done recently,
+     * possibly by another build on the same machine.
+     */
+    @Parameter(alias = "usePolicyCheckCache", property = Constants.USE_POLICY_CHECK_CACHE, required = false, defaultValue = "false")
+    protected boolean usePolicyCheckCache;
+
+    /**
+     * Optional. Directory of the policy check cache.
+     * If omitted, defaults to a folder inside the local repository.
+     */
+    @Parameter(alias = "policyCheckCacheDirectory", property = Constants.POLICY_CHECK_CACHE_DIRECTORY, required = false)
+    protected File policyCheckCacheDirectory;
+
+    /**
+     * Optional. Number of minutes a cached policy check result is reused for.
+     */
+    @Parameter(alias = "policyCheckCacheTtlMinutes", property = Constants.POLICY_CHECK_CACHE_TTL_MINUTES, required = false, defaultValue = "60")
+    protected int policyCheckCacheTtlMinutes;
+
+    /* --- Checksum Parameters --- */
+
+    /**
+     * Optional. Set to true to keep artifact checksums on disk between builds.
+     * Entries are keyed by the artifact file path, size and modification time.
+     */
+    @Parameter(alias = "useChecksumCache", property = Constants.USE_CHECKSUM_CACHE, required = false, defaultValue = "false")
+    protected boolean useChecksumCache;
+
+    /**
+     * Optional. Directory of the checksum cache, may be shared by several builds on the same machine.
+     * If omitted, defaults to a folder inside the local repository.
+     */
+    @Parameter(alias = "checksumCacheDirectory", property = Constants.CHECKSUM_CACHE_DIRECTORY, required = false)
+    protected File checksumCacheDirectory;
+
+    /**
+     * Optional. Maximum number of entries kept in the checksum cache, least recently used entries are evicted first.
+     */
+    @Parameter(alias = "checksumCacheMaxEntries", property = Constants.CHECKSUM_CACHE_MAX_ENTRIES, required = false, defaultValue = "100000")
+    protected int checksumCacheMaxEntries;
+
+    /**
+     * Optional. Checksum cache entries not used for this number of days are evicted.
+     */
+    @Parameter(alias = "checksumCacheMaxAgeDays", property = Constants.CHECKSUM_CACHE_MAX_AGE_DAYS, required = false, defaultValue = "30")
+    protected int checksumCacheMaxAgeDays;
+
+    /**
+     * Optional. Set to true to take release artifact checksums from the <code>.sha1</code> files
+     * found next to them in the local repository, instead of calculating them.
+     */
+    @Parameter(alias = "useChecksumSidecars", property = Constants.USE_CHECKSUM_SIDECARS, required = false, defaultValue = "false")
+    protected boolean useChecksumSidecars;
+
+    /**
+     * Optional. Fraction (0 to 1) of the <code>.sha1</code> files to verify against the artifact itself.
+     *
+     * Important: Only used if {@link AgentMojo#useChecksumSidecars} is set to true.
+     */
+    @Parameter(alias = "checksumSidecarVerificationRate", property = Constants.CHECKSUM_SIDECAR_VERIFICATION_RATE, required = false, defaultValue = "0")
+    protected double checksumSidecarVerificationRate;
+
+    /**
+     * Optional. Number of threads calculating artifact checksums, defaults to the number of available processors.
+     */
+    @Parameter(alias = "checksumThreads", property = Constants.CHECKSUM_THREADS, required = false, defaultValue = "0")
+    protected int checksumThreads;
+
+    /**
+     * Optional. Maximum total size (in megabytes) of the artifacts being read concurrently for checksum calculation.
+     */
+    @Parameter(alias = "checksumMaxMegabytesInFlight", property = Constants.CHECKSUM_MAX_MEGABYTES_IN_FLIGHT, required = false, defaultValue = "256")
+    protected int checksumMaxMegabytesInFlight;
+
+    protected ChecksumCalculator checksumCalculator;
+
+    private PersistentChecksumCache checksumCache;
+
+    private SidecarChecksumCalculator sidecarChecksumCalculator;
+
+    private ParallelChecksumExecutor checksumExecutor;
+
+    private SingleFlightChecksumCalculator checksumMemo;
+
+    private DependencySubtreeCache subtreeCache;
+
+    private CoordinatesPatterns moduleIncludes;
+
+    private CoordinatesPatterns moduleExcludes;
+
+    private CoordinatesFilter dependencyFilter;
+
+    protected RunMetrics metrics = new RunMetrics(null, false);
+
     /* --- Constructors --- */
 
     protected AgentMojo() {
@@ -187,6 +395,70 @@ public abstract class AgentMojo extends WhitesourceMojo {
 
         // properties
         orgToken = session.getSystemProperties().getProperty(Constants.ORG_TOKEN, orgToken);
+
+        // filters
+        moduleIncludes = new CoordinatesPatterns(includes);
+        moduleExcludes = new CoordinatesPatterns(excludes);
+        dependencyFilter = new CoordinatesFilter(dependencyIncludes, dependencyExcludes);
+
+        checksumCalculator = createChecksumCalculator();
+
+        String goal = StringUtils.uncapitalize(StringUtils.removeEnd(getClass().getSimpleName(), "Mojo"));
+        metrics = new RunMetrics(goal, writeMetrics || metricsPrometheusFile != null);
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        try {
+            super.execute();
+        } finally {
+            writeMetrics();
+        }
+    }
+
+    /**
+     * Writes the metrics recorded so far, if requested.
+     */
+    protected void writeMetrics() {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        try {
+            if (writeMetrics) {
+                metrics.writeJson(new File(outputDirectory, Constants.METRICS_FILE));
+            }
+            if (metricsPrometheusFile != null) {
+                metrics.writePrometheus(metricsPrometheusFile);
+            }
+        } catch (IOException e) {
+            warn("Error writing metrics: " + e.getMessage(), e);
+        }
+    }
+
+    protected ChecksumCalculator createChecksumCalculator() {
+        FileChannelChecksumCalculator fileChannelCalculator = new FileChannelChecksumCalculator();
+        debug("SHA-1 provider: " + (fileChannelCalculator.getProvider() == null ? "default" : fileChannelCalculator.getProvider().getName()));
+        ChecksumCalculator calculator = fileChannelCalculator;
+
+        if (useChecksumCache) {
+            File directory = checksumCacheDirectory;
+            if (directory == null) {
+                directory = new File(session.getLocalRepository().getBasedir(), Constants.CHECKSUM_CACHE_FOLDER);
+            }
+            debug("Checksum cache directory: " + directory.getAbsolutePath());
+            checksumCache = new PersistentChecksumCache(calculator, directory,
+                    checksumCacheMaxEntries, TimeUnit.DAYS.toMillis(checksumCacheMaxAgeDays));
+            calculator = checksumCache;
+        }
+
+        if (useChecksumSidecars) {
+            sidecarChecksumCalculator = new SidecarChecksumCalculator(calculator, checksumSidecarVerificationRate);
+            calculator = sidecarChecksumCalculator;
+        }
+
+        // each artifact is calculated at most once per run, no matter how many modules depend on it
+        checksumMemo = new SingleFlightChecksumCalculator(calculator);
+        return checksumMemo;
     }
 
     protected DependencyInfo getDependencyInfo(Dependency dependency) {
@@ -211,42 +483,216 @@ public abstract class AgentMojo extends WhitesourceMojo {
         return info;
     }
 
-    private DependencyInfo getDependencyInfo(AetherDependencyNode dependencyNode) {
-        DependencyInfo info = new DependencyInfo();
+    /**
+     * Calculate the SHA-1 of all given artifact files and set it on their dependencies.
+     * Files are hashed concurrently while extracting the project infos, in the calling thread otherwise.
+     *
+     * @param artifactFiles Artifact files mapped to the dependencies resolved to them.
+     */
+    protected void calculateChecksums(Map<File, Collection<DependencyInfo>> artifactFiles) {
+        if (artifactFiles.isEmpty()) {
+            return;
+        }
 
-        // dependency data
-        AetherDependency dependency = dependencyNode.getDependency();
-        AetherArtifact artifact = dependency.getArtifact();
-        info.setGroupId(artifact.getGroupId());
-        info.setArtifactId(artifact.getArtifactId());
-        info.setVersion(artifact.getVersion());
-        info.setScope(dependency.getScope());
-        info.setClassifier(artifact.getClassifier());
-        info.setOptional(dependency.isOptional());
-        info.setType(artifact.getProperty(TYPE, ""));
+        // skip the worker pool for artifacts already calculated by previous modules
+        Map<File, String> checksums = new HashMap<File, String>();
+        Collection<File> missingFiles = new ArrayList<File>();
+        for (File artifactFile : artifactFiles.keySet()) {
+            String sha1 = checksumMemo.getCalculated(artifactFile);
+            if (sha1 == null) {
+                missingFiles.add(artifactFile);
+            } else {
+                checksums.put(artifactFile, sha1);
+            }
+        }
 
-        // try to calculate SHA-1
-        File artifactFile = artifact.getFile();
-        if (artifactFile != null && artifactFile.exists()) {
-            try {
-                info.setSystemPath(artifactFile.getAbsolutePath());
-                info.setSha1(ChecksumUtils.calculateSHA1(artifactFile));
-            } catch (IOException e) {
-                debug(Constants.ERROR_SHA1 + " for " + dependency.toString());
+        metrics.add(RunMetrics.REUSED_CHECKSUMS, checksums.size());
+        RunMetrics.Timer timer = metrics.start(RunMetrics.HASHING);
+        try {
+            ParallelChecksumExecutor executor = checksumExecutor;
+            if (executor == null) {
+                executor = new ParallelChecksumExecutor(checksumCalculator, 1, Long.MAX_VALUE);
             }
+            checksums.putAll(executor.calculate(missingFiles));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calculating checksums", e);
+        } finally {
+            timer.stop();
+        }
+        if (metrics.isEnabled()) {
+            long bytes = 0;
+            for (File file : missingFiles) {
+                bytes += file.length();
+            }
+            metrics.add(RunMetrics.HASHED_FILES, missingFiles.size());
+            metrics.add(RunMetrics.HASHED_BYTES, bytes);
         }
 
-        // exclusions
-        for (AetherExclusion exclusion : dependency.getExclusions()) {
-            info.getExclusions().add(new ExclusionInfo(exclusion.getArtifactId(), exclusion.getGroupId()));
+        for (Map.Entry<File, Collection<DependencyInfo>> entry : artifactFiles.entrySet()) {
+            String sha1 = checksums.get(entry.getKey());
+            if (sha1 == null) {
+                debug(Constants.ERROR_SHA1 + " for " + entry.getKey().getAbsolutePath());
+            } else {
+                for (DependencyInfo info : entry.getValue()) {
+                    info.setSha1(sha1);
+                }
+            }
         }
+    }
 
-        // recursively collect children
-        for (AetherDependencyNode child : dependencyNode.getChildren()) {
-            info.getChildren().add(getDependencyInfo(child));
+    protected UpdateInventoryResult sendUpdateRequest(Collection<AgentProjectInfo> projectInfos) throws WssServiceException {
+        RequestBatcher batcher = createRequestBatcher();
+        // an update replaces the inventory of each project, so modules are never split between requests
+        List<List<AgentProjectInfo>> batches = batcher.createBatches(projectInfos, false);
+        final WhitesourceService service = getService();
+        if (batches.size() <= 1) {
+            return sendUpdateRequest(service, projectInfos);
         }
 
-        return info;
+        info("Sending " + projectInfos.size() + " modules in " + batches.size() + " requests");
+        List<UpdateInventoryResult> results = batcher.send(batches, requestParallelism, new RequestBatcher.Sender<UpdateInventoryResult>() {
+            @Override
+            public UpdateInventoryResult send(Collection<AgentProjectInfo> batch) throws WssServiceException {
+                WhitesourceService batchService = requestParallelism > 1 && streamingClient == null ? newService() : service;
+                try {
+                    return sendUpdateRequest(batchService, batch);
+                } finally {
+                    if (batchService != service) {
+                        batchService.shutdown();
+                    }
+                }
+            }
+        });
+
+        return mergeUpdateResults(results);
+    }
+
+    /**
+     * @param results Results of several update requests to the same organization, at least one.
+     */
+    protected UpdateInventoryResult mergeUpdateResults(List<UpdateInventoryResult> results) {
+        UpdateInventoryResult merged = new UpdateInventoryResult(results.get(0).getOrganization());
+        for (UpdateInventoryResult result : results) {
+            merged.getCreatedProjects().addAll(result.getCreatedProjects());
+            merged.getUpdatedProjects().addAll(result.getUpdatedProjects());
+        }
+        return merged;
+    }
+
+    protected CheckPolicyComplianceResult sendCheckPoliciesRequest(Collection<AgentProjectInfo> projectInfos,
+                                                                   boolean forceCheckAllDependencies) throws WssServiceException {
+        if (!usePolicyCheckCache) {
+            return checkPolicies(projectInfos, forceCheckAllDependencies);
+        }
+
+        File directory = policyCheckCacheDirectory;
+        if (directory == null) {
+            directory = new File(session.getLocalRepository().getBasedir(), Constants.POLICY_CHECK_CACHE_FOLDER);
+        }
+        PolicyCheckCache cache = new PolicyCheckCache(directory, TimeUnit.MINUTES.toMillis(policyCheckCacheTtlMinutes));
+        String key = createPolicyCheckKey(projectInfos, forceCheckAllDependencies);
+        CheckPolicyComplianceResult result = cache.get(key);
+        if (result != null) {
+            info("Using policy check result cached less than " + policyCheckCacheTtlMinutes + " minutes ago");
+            return result;
+        }
+
+        result = checkPolicies(projectInfos, forceCheckAllDependencies);
+        try {
+            cache.put(key, result);
+            cache.evict();
+        } catch (IOException e) {
+            warn("Error caching policy check result in " + directory.getAbsolutePath(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Writes a request to be sent later by the upload goal, see {@link UploadMojo}.
+     *
+     * @param type One of {@link OfflineRequest#UPDATE} and {@link OfflineRequest#CHECK_POLICY_COMPLIANCE}.
+     */
+    protected void writeOfflineRequest(String type, Collection<AgentProjectInfo> projectInfos, boolean forceCheckAllDependencies)
+            throws MojoExecutionException {
+        List<String> values = new ArrayList<String>();
+        values.add(type);
+        values.add(orgToken);
+        values.add(requesterEmail);
+        values.add(product);
+        values.add(productVersion);
+        values.add(String.valueOf(forceCheckAllDependencies));
+        ProjectFingerprinter fingerprinter = new ProjectFingerprinter();
+        for (AgentProjectInfo projectInfo : projectInfos) {
+            values.add(fingerprinter.fingerprint(projectInfo));
+        }
+
+        OfflineRequest request = new OfflineRequest(type, orgToken, requesterEmail, product, productVersion,
+                forceCheckAllDependencies, projectInfos);
+        try {
+            File file = request.write(requestDirectory, ProjectFingerprinter.fingerprint(values));
+            info("Offline request of " + projectInfos.size() + " modules written to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing offline request: " + e.getMessage(), e);
+        }
+    }
+
+    protected RequestBatcher createRequestBatcher() {
+        return new RequestBatcher(requestBatchMaxModules, requestBatchMaxMegabytes * 1024L * 1024L);
+    }
+
+    private CheckPolicyComplianceResult checkPolicies(Collection<AgentProjectInfo> projectInfos,
+                                                      final boolean forceCheckAllDependencies) throws WssServiceException {
+        RequestBatcher batcher = createRequestBatcher();
+        List<List<AgentProjectInfo>> batches = batcher.createBatches(projectInfos, true);
+        final WhitesourceService service = getService();
+        if (batches.size() <= 1) {
+            return sendCheckPoliciesRequest(service, projectInfos, forceCheckAllDependencies);
+        }
+
+        info("Checking policies of " + projectInfos.size() + " modules in " + batches.size() + " requests");
+        List<CheckPolicyComplianceResult> results = batcher.send(batches, requestParallelism, new RequestBatcher.Sender<CheckPolicyComplianceResult>() {
+            @Override
+            public CheckPolicyComplianceResult send(Collection<AgentProjectInfo> batch) throws WssServiceException {
+                WhitesourceService batchService = requestParallelism > 1 && streamingClient == null ? newService() : service;
+                try {
+                    return sendCheckPoliciesRequest(batchService, batch, forceCheckAllDependencies);
+                } finally {
+                    if (batchService != service) {
+                        batchService.shutdown();
+                    }
+                }
+            }
+        });
+
+        CheckPolicyComplianceResult merged = new CheckPolicyComplianceResult(results.get(0).getOrganization());
+        for (CheckPolicyComplianceResult result : results) {
+            mergeProjects(merged.getExistingProjects(), result.getExistingProjects());
+            mergeProjects(merged.getNewProjects(), result.getNewProjects());
+        }
+        return merged;
+    }
+
+    /**
+     * @return A fingerprint of everything that affects the result of a policy check.
+     */
+    private String createPolicyCheckKey(Collection<AgentProjectInfo> projectInfos, boolean forceCheckAllDependencies) {
+        // the order of the modules doesn't affect the result
+        ProjectFingerprinter fingerprinter = new ProjectFingerprinter();
+        List<String> projectFingerprints = new ArrayList<String>(projectInfos.size());
+        for (AgentProjectInfo projectInfo : projectInfos) {
+            projectFingerprints.add(fingerprinter.fingerprint(projectInfo));
+        }
+        Collections.sort(projectFingerprints);
+
+        List<String> values = new ArrayList<String>();
+        values.add(serviceUrl);
+        values.add(orgToken);
+        values.add(product);
+        values.add(productVersion);
+        values.add(String.valueOf(forceCheckAllDependencies));
+        values.addAll(projectFingerprints);
+        return ProjectFingerprinter.fingerprint(values);
     }
 
     protected void debugProjectInfos(Collection<AgentProjectInfo> projectInfos) {
@@ -267,7 +713,22 @@ public abstract class AgentMojo extends WhitesourceMojo {
     }
 
     protected AgentProjectInfo processProject(MavenProject project) throws MojoExecutionException, DependencyResolutionException {
+        Map<File, Collection<DependencyInfo>> artifactFiles = new HashMap<File, Collection<DependencyInfo>>();
+        AgentProjectInfo projectInfo = processProject(project, artifactFiles);
+        calculateChecksums(artifactFiles);
+        return projectInfo;
+    }
+
+    /**
+     * Same as {@link #processProject(MavenProject)}, leaving the checksums to the caller.
+     *
+     * @param artifactFiles Collects the artifact files to calculate checksums for.
+     */
+    protected AgentProjectInfo processProject(MavenProject project, Map<File, Collection<DependencyInfo>> artifactFiles)
+            throws MojoExecutionException, DependencyResolutionException {
         long startTime = System.currentTimeMillis();
+        RunMetrics.Timer timer = metrics.start(RunMetrics.MODULE, project.getId());
+        EventSpan span = FlightRecorderEvents.startModule(project.getId());
 
         info("Processing " + project.getId());
 
@@ -290,10 +751,14 @@ public abstract class AgentMojo extends WhitesourceMojo {
 
         // collect dependencies
         try {
-           projectInfo.getDependencies().addAll(collectDependencyStructure(project));
+           projectInfo.getDependencies().addAll(collectDependencyStructure(project, artifactFiles));
+           span.setCount(artifactFiles.size());
         } catch (DependencyResolutionException e) {
             error("Error resolving dependencies for project " + project.getName() + ", exiting");
             throw e;
+        } finally {
+            timer.stop();
+            span.end();
         }
 
         debug("Total Processing Time = " + (System.currentTimeMillis() - startTime) + " [msec]");
@@ -302,29 +767,30 @@ public abstract class AgentMojo extends WhitesourceMojo {
 
     protected Collection<DependencyInfo> collectDirectDependencies(MavenProject project) {
         Collection<DependencyInfo> dependencyInfos = new ArrayList<DependencyInfo>();
+        Map<File, Collection<DependencyInfo>> artifactFiles = new HashMap<File, Collection<DependencyInfo>>();
 
-        Map<Dependency, Artifact> lut = createLookupTable(project);
+        ArtifactIndex artifactIndex = new ArtifactIndex(project);
         for (Dependency dependency : project.getDependencies()) {
             if (ignoreTestScopeDependencies && Artifact.SCOPE_TEST.equals(dependency.getScope())) {
                 continue; // exclude test scope dependencies from being sent to the server
             }
+            if (dependencyFilter != null && !dependencyFilter.accept(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())) {
+                continue;
+            }
 
             DependencyInfo dependencyInfo = getDependencyInfo(dependency);
 
-            // try to calculate SHA-1
-            Artifact artifact = lut.get(dependency);
+            // SHA-1 is calculated once all dependencies are collected
+            Artifact artifact = artifactIndex.get(dependency);
             if (artifact != null) {
                 File artifactFile = artifact.getFile();
                 if (artifactFile != null && artifactFile.exists()) {
-                    try {
-                        dependencyInfo.setSha1(ChecksumUtils.calculateSHA1(artifactFile));
-                    } catch (IOException e) {
-                        debug(Constants.ERROR_SHA1 + " for " + artifact.getId());
-                    }
+                    DependencySubtreeCache.addArtifactFile(artifactFiles, artifactFile, dependencyInfo);
                 }
             }
             dependencyInfos.add(dependencyInfo);
         }
+        calculateChecksums(artifactFiles);
 
         return dependencyInfos;
     }
@@ -340,17 +806,48 @@ public abstract class AgentMojo extends WhitesourceMojo {
      * @throws DependencyResolutionException Exception thrown if dependency resolution fails.
      */
     protected Collection<DependencyInfo> collectDependencyStructure(MavenProject project) throws DependencyResolutionException {
-        AetherDependencyNode rootNode = DependencyGraphFactory.getAetherDependencyGraphRootNode(project, projectDependenciesResolver, session);
-        Collection<DependencyInfo> dependencyInfos = new ArrayList<DependencyInfo>();
-        for (AetherDependencyNode dependencyNode : rootNode.getChildren()) {
+        Map<File, Collection<DependencyInfo>> artifactFiles = new HashMap<File, Collection<DependencyInfo>>();
+        Collection<DependencyInfo> dependencyInfos = collectDependencyStructure(project, artifactFiles);
+        calculateChecksums(artifactFiles);
+        return dependencyInfos;
+    }
+
+    /**
+     * Same as {@link #collectDependencyStructure(MavenProject)}, leaving the checksums to the caller.
+     *
+     * @param artifactFiles Collects the artifact files to calculate checksums for.
+     */
+    protected Collection<DependencyInfo> collectDependencyStructure(MavenProject project, Map<File, Collection<DependencyInfo>> artifactFiles)
+            throws DependencyResolutionException {
+        RunMetrics.Timer timer = metrics.start(RunMetrics.RESOLUTION, project.getId());
+        CompactDependencyGraph graph;
+        try {
+            graph = DependencyGraphFactory.getCompactDependencyGraph(project, projectDependenciesResolver, session);
+        } finally {
+            timer.stop();
+        }
+        metrics.peak(RunMetrics.GRAPH_NODES, graph.getNodeCount());
+        metrics.add(project.getId(), RunMetrics.GRAPH_NODES, graph.getNodeCount());
+        List<Integer> roots = new ArrayList<Integer>();
+        for (int node = graph.getFirstChild(CompactDependencyGraph.ROOT); node != CompactDependencyGraph.NONE; node = graph.getNextSibling(node)) {
             // don't add ignored scope
-            String scope = dependencyNode.getDependency().getScope();
+            String scope = graph.getScope(node);
             if (StringUtils.isBlank(scope) || !shouldIgnore(scope)) {
-                DependencyInfo info = getDependencyInfo(dependencyNode);
-                dependencyInfos.add(info);
+                roots.add(node);
             }
         }
 
+        DependencySubtreeCache subtreeCache = this.subtreeCache == null ? new DependencySubtreeCache() : this.subtreeCache;
+        timer = metrics.start(RunMetrics.CONVERSION, project.getId());
+        Collection<DependencyInfo> dependencyInfos;
+        try {
+            dependencyInfos = subtreeCache.convert(graph, roots, dependencyFilter, new ArtifactIndex(project), artifactFiles);
+        } finally {
+            timer.stop();
+        }
+        metrics.add(project.getId(), RunMetrics.ARTIFACTS, artifactFiles.size());
+        debug("Dependency graph nodes: " + graph.getNodeCount() + ", distinct coordinates: " + graph.getCoordinateCount());
+
         debug(MessageFormat.format("*** Printing Graph Result for {0} ***", project.getName()));
         for (DependencyInfo dependencyInfo : dependencyInfos) {
             debugPrintChildren(dependencyInfo, "");
@@ -372,79 +869,66 @@ public abstract class AgentMojo extends WhitesourceMojo {
                 mavenProject.getVersion());
     }
 
-    protected Map<Dependency, Artifact> createLookupTable(MavenProject project) {
-        Map<Dependency, Artifact> lut = new HashMap<Dependency, Artifact>();
-
-        for (Dependency dependency : project.getDependencies()) {
-            for (Artifact dependencyArtifact : project.getDependencyArtifacts()) {
-                if (match(dependency, dependencyArtifact)) {
-                    lut.put(dependency, dependencyArtifact);
-                }
-            }
-        }
-
-        return lut;
+    protected Collection<AgentProjectInfo> extractProjectInfos() throws MojoExecutionException, DependencyResolutionException {
+        return extractProjectInfos(null);
     }
 
-    protected boolean matchAny(String value, String[] patterns) {
-        if (value == null) { return false; }
-
-        boolean match = false;
-        for (int i=0; i < patterns.length && !match; i++) {
-            String pattern = patterns[i];
-            if (pattern != null)  {
-                String regex = pattern.replace(".", "\\.").replace("*", ".*");
-                match = value.matches(regex);
+    /**
+     * @param uploader If not null, modules are processed by a {@link ModulePipeline} and each module is given
+     *                 to the uploader as soon as it's complete. Not supported together with module aggregation.
+     */
+    protected Collection<AgentProjectInfo> extractProjectInfos(ModulePipeline.Uploader uploader)
+            throws MojoExecutionException, DependencyResolutionException {
+        Collection<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>();
+        int threads = checksumThreads > 0 ? checksumThreads : Runtime.getRuntime().availableProcessors();
+        checksumExecutor = new ParallelChecksumExecutor(checksumCalculator, threads, checksumMaxMegabytesInFlight * 1024L * 1024L);
+        debug("Checksum threads: " + checksumExecutor.getThreads());
+        // identical dependency subtrees are converted once for the whole reactor
+        subtreeCache = new DependencySubtreeCache();
+        try {
+            List<MavenProject> projects = new ArrayList<MavenProject>();
+            for (MavenProject project : reactorProjects) {
+                if (shouldProcess(project)) {
+                    projects.add(project);
+                }
             }
-        }
-        return match;
-    }
-
-    protected boolean match(Dependency dependency, Artifact artifact) {
-        boolean match = dependency.getGroupId().equals(artifact.getGroupId()) &&
-                dependency.getArtifactId().equals(artifact.getArtifactId()) &&
-                dependency.getVersion().equals(artifact.getVersion());
 
-        if (match) {
-            String artifactClassifier = artifact.getClassifier();
-            if (dependency.getClassifier() == null) {
-                match = artifactClassifier == null || StringUtils.isBlank(artifactClassifier);
+            if (uploader != null) {
+                projectInfos.addAll(processProjectsPipelined(projects, uploader));
+            } else if (moduleParallelism > 1 && projects.size() > 1) {
+                projectInfos.addAll(processProjectsConcurrently(projects));
             } else {
-                match = dependency.getClassifier().equals(artifactClassifier);
+                for (MavenProject project : projects) {
+                    projectInfos.add(processProject(project));
+                }
             }
+        } finally {
+            checksumExecutor.shutdown();
+            checksumExecutor = null;
+            debug("Dependency subtrees converted: " + subtreeCache.getConverted() + ", reused: " + subtreeCache.getReused());
+            subtreeCache = null;
         }
+        debugProjectInfos(projectInfos);
 
-        if (match) {
-            String type = artifact.getType();
-            if (dependency.getType() == null) {
-                match = type == null || "jar".equals(type);
-            } else {
-                match = dependency.getType().equals(type);
-            }
+        debug("Checksums calculated: " + checksumMemo.getMisses() + ", reused: " + checksumMemo.getHits()
+                + " (" + MessageFormat.format("{0,number,#.#}", checksumMemo.getHitRate()) + "% hit rate)");
+        if (checksumCache != null) {
+            debug("Checksum cache hits: " + checksumCache.getHits() + ", misses: " + checksumCache.getMisses());
+            checksumCache.evict();
         }
-
-        return match;
-    }
-
-    protected Collection<AgentProjectInfo> extractProjectInfos() throws MojoExecutionException, DependencyResolutionException {
-        Collection<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>();
-        for (MavenProject project : reactorProjects) {
-            if (shouldProcess(project)) {
-                projectInfos.add(processProject(project));
+        if (sidecarChecksumCalculator != null) {
+            debug("Checksums taken from sidecar files: " + sidecarChecksumCalculator.getHits()
+                    + ", verified: " + sidecarChecksumCalculator.getVerified());
+            for (File mismatch : sidecarChecksumCalculator.getMismatches()) {
+                warn("Checksum sidecar file doesn't match " + mismatch.getAbsolutePath());
             }
         }
-        debugProjectInfos(projectInfos);
 
         // combine all pom modules into a single project
-        if (aggregateModules) {
+        if (aggregateModules && uploader == null) {
             // collect dependencies as flat list
-            Set<DependencyInfo> flatDependencies = new HashSet<DependencyInfo>();
-            for (AgentProjectInfo projectInfo : projectInfos) {
-                for (DependencyInfo dependency : projectInfo.getDependencies()) {
-                    flatDependencies.add(dependency);
-                    flatDependencies.addAll(extractChildren(dependency));
-                }
-            }
+            DependencyAggregator aggregator = new DependencyAggregator();
+            aggregator.add(projectInfos);
 
             // clear all projects
             projectInfos.clear();
@@ -453,7 +937,7 @@ public abstract class AgentMojo extends WhitesourceMojo {
             AgentProjectInfo aggregatingProject = new AgentProjectInfo();
             aggregatingProject.setCoordinates(extractCoordinates(mavenProject));
             aggregatingProject.setProjectToken(aggregateProjectToken);
-            aggregatingProject.getDependencies().addAll(flatDependencies);
+            aggregatingProject.getDependencies().addAll(aggregator.getDependencies());
             // override artifact id with project name
             if (StringUtils.isNotBlank(aggregateProjectName)) {
                 aggregatingProject.getCoordinates().setArtifactId(aggregateProjectName);
@@ -463,17 +947,241 @@ public abstract class AgentMojo extends WhitesourceMojo {
         return projectInfos;
     }
 
-    private Collection<DependencyInfo> extractChildren(DependencyInfo dependency) {
-        Collection<DependencyInfo> children = new ArrayList<DependencyInfo>();
-        Iterator<DependencyInfo> iterator = dependency.getChildren().iterator();
-        while (iterator.hasNext()) {
-            DependencyInfo child = iterator.next();
-            children.add(child);
-            children.addAll(extractChildren(child));
-            // flatten dependencies
-            iterator.remove();
+    /**
+     * Process the given modules concurrently, biggest modules first.
+     * Results are returned in the order of the given modules and a failure is reported just as the sequential
+     * processing would: the first failing module in that order fails the whole process.
+     */
+    private Collection<AgentProjectInfo> processProjectsConcurrently(List<MavenProject> projects)
+            throws MojoExecutionException, DependencyResolutionException {
+        int parallelism = Math.min(moduleParallelism, projects.size());
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism, createModuleThreadFactory());
+        debug("Processing " + projects.size() + " modules, " + parallelism + " at a time");
+
+        // schedule the biggest modules first to shorten the tail
+        List<MavenProject> schedule = sortBySize(projects);
+
+        Map<MavenProject, Future<AgentProjectInfo>> futures = new IdentityHashMap<MavenProject, Future<AgentProjectInfo>>();
+        Collection<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>(projects.size());
+        try {
+            for (final MavenProject project : schedule) {
+                futures.put(project, executorService.submit(new Callable<AgentProjectInfo>() {
+                    @Override
+                    public AgentProjectInfo call() throws Exception {
+                        return processProject(project);
+                    }
+                }));
+            }
+
+            for (MavenProject project : projects) {
+                try {
+                    projectInfos.add(futures.get(project).get());
+                } catch (ExecutionException e) {
+                    rethrow(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while processing modules", e);
+        } finally {
+            executorService.shutdownNow();
+        }
+        return projectInfos;
+    }
+
+    private UpdateInventoryResult sendUpdateRequest(final WhitesourceService service, final Collection<AgentProjectInfo> projectInfos)
+            throws WssServiceException {
+        recordRequestSize(projectInfos);
+        RunMetrics.Timer timer = metrics.start(RunMetrics.SERVICE);
+        EventSpan span = FlightRecorderEvents.startServiceCall(OfflineRequest.UPDATE, projectInfos.size());
+        try {
+            UpdateInventoryResult result = retrier.call("Update request", new ServiceCallRetrier.Call<UpdateInventoryResult>() {
+                @Override
+                public UpdateInventoryResult call() throws WssServiceException {
+                    if (streamingClient != null) {
+                        return streamingClient.update(orgToken, requesterEmail, product, productVersion, projectInfos, metrics);
+                    }
+                    return service.update(orgToken, requesterEmail, product, productVersion, projectInfos);
+                }
+            });
+            span.setSuccess(true);
+            return result;
+        } finally {
+            timer.stop();
+            span.end();
+        }
+    }
+
+    private CheckPolicyComplianceResult sendCheckPoliciesRequest(final WhitesourceService service, final Collection<AgentProjectInfo> projectInfos,
+                                                                 final boolean forceCheckAllDependencies) throws WssServiceException {
+        recordRequestSize(projectInfos);
+        RunMetrics.Timer timer = metrics.start(RunMetrics.SERVICE);
+        EventSpan span = FlightRecorderEvents.startServiceCall(OfflineRequest.CHECK_POLICY_COMPLIANCE, projectInfos.size());
+        try {
+            CheckPolicyComplianceResult result = retrier.call("Check policies request", new ServiceCallRetrier.Call<CheckPolicyComplianceResult>() {
+                @Override
+                public CheckPolicyComplianceResult call() throws WssServiceException {
+                    if (streamingClient != null) {
+                        return streamingClient.checkPolicyCompliance(orgToken, product, productVersion, projectInfos,
+                                forceCheckAllDependencies, metrics);
+                    }
+                    return service.checkPolicyCompliance(orgToken, product, productVersion, projectInfos, forceCheckAllDependencies);
+                }
+            });
+            span.setSuccess(true);
+            return result;
+        } finally {
+            timer.stop();
+            span.end();
+        }
+    }
+
+    /**
+     * Estimates the size of a request sent by the stock client, only when metrics are recorded. The stock client
+     * doesn't expose the request it writes, so the projects are serialized once more to measure them.
+     * Streamed requests are measured while they are written instead.
+     */
+    private void recordRequestSize(Collection<AgentProjectInfo> projectInfos) {
+        if (metrics.isEnabled() && streamingClient == null) {
+            long size = createRequestBatcher().estimateSize(projectInfos);
+            metrics.add(RunMetrics.REQUESTS, 1);
+            metrics.add(RunMetrics.ESTIMATED_REQUEST_BYTES, size);
+        }
+    }
+
+    /**
+     * Merges the policy check results of projects, a project split between requests gets the children of all its parts.
+     */
+    private void mergeProjects(Map<String, PolicyCheckResourceNode> merged, Map<String, PolicyCheckResourceNode> projects) {
+        if (projects == null) {
+            return;
+        }
+        for (Map.Entry<String, PolicyCheckResourceNode> entry : projects.entrySet()) {
+            PolicyCheckResourceNode existing = merged.get(entry.getKey());
+            if (existing == null) {
+                merged.put(entry.getKey(), entry.getValue());
+            } else {
+                existing.getChildren().addAll(entry.getValue().getChildren());
+            }
+        }
+    }
+
+    /**
+     * Process the given modules in a {@link ModulePipeline}: resolution, hashing and upload of different modules overlap.
+     * Results are returned in the order of the given modules.
+     */
+    private Collection<AgentProjectInfo> processProjectsPipelined(List<MavenProject> projects, final ModulePipeline.Uploader uploader)
+            throws MojoExecutionException, DependencyResolutionException {
+        final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(createModuleThreadFactory());
+        ModulePipeline pipeline = new ModulePipeline(moduleParallelism, pipelineQueueCapacity, createModuleThreadFactory()) {
+            @Override
+            protected PreparedModule resolve(MavenProject project) throws Exception {
+                Map<File, Collection<DependencyInfo>> artifactFiles = new HashMap<File, Collection<DependencyInfo>>();
+                return new PreparedModule(project, processProject(project, artifactFiles), artifactFiles);
+            }
+
+            @Override
+            protected void prefetch(PreparedModule module) {
+                final Collection<File> files = new ArrayList<File>(module.getArtifactFiles().keySet());
+                prefetchExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            // results are kept by the checksum memo until the module is hashed
+                            checksumExecutor.calculate(files);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+
+            @Override
+            protected void hash(PreparedModule module) {
+                calculateChecksums(module.getArtifactFiles());
+            }
+
+            @Override
+            protected void upload(AgentProjectInfo projectInfo) throws WssServiceException {
+                uploader.upload(projectInfo);
+            }
+        };
+        debug("Pipelining " + projects.size() + " modules, resolving " + Math.max(1, moduleParallelism) + " at a time");
+
+        Map<MavenProject, AgentProjectInfo> completed = null;
+        try {
+            completed = pipeline.run(sortBySize(projects));
+        } catch (ExecutionException e) {
+            rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while processing modules", e);
+        } finally {
+            prefetchExecutor.shutdownNow();
+        }
+
+        Collection<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>(projects.size());
+        for (MavenProject project : projects) {
+            projectInfos.add(completed.get(project));
+        }
+        return projectInfos;
+    }
+
+    private void rethrow(Throwable cause) throws MojoExecutionException, DependencyResolutionException {
+        if (cause instanceof DependencyResolutionException) {
+            throw (DependencyResolutionException) cause;
+        } else if (cause instanceof MojoExecutionException) {
+            throw (MojoExecutionException) cause;
+        } else if (cause instanceof WssServiceException) {
+            throw new MojoExecutionException(Constants.ERROR_SERVICE_CONNECTION + cause.getMessage(), cause);
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new MojoExecutionException(cause.getMessage(), cause);
+    }
+
+    private List<MavenProject> sortBySize(List<MavenProject> projects) {
+        List<MavenProject> sorted = new ArrayList<MavenProject>(projects);
+        Collections.sort(sorted, new Comparator<MavenProject>() {
+            @Override
+            public int compare(MavenProject p1, MavenProject p2) {
+                int size1 = estimateSize(p1);
+                int size2 = estimateSize(p2);
+                return size1 > size2 ? -1 : (size1 == size2 ? 0 : 1);
+            }
+        });
+        return sorted;
+    }
+
+    private int estimateSize(MavenProject project) {
+        Set<Artifact> artifacts = project.getArtifacts();
+        return artifacts == null ? 0 : artifacts.size();
+    }
+
+    private ThreadFactory createModuleThreadFactory() {
+        if (useVirtualThreads) {
+            try {
+                Object builder = Invoker.invoke(Thread.class, null, "ofVirtual");
+                return (ThreadFactory) Invoker.invoke(Class.forName("java.lang.Thread$Builder"), builder, "factory");
+            } catch (ClassNotFoundException e) {
+                warn("Virtual threads are not supported by this JVM, using platform threads");
+            } catch (RuntimeException e) {
+                warn("Virtual threads are not supported by this JVM, using platform threads", e);
+            }
         }
-        return children;
+
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "whitesource-module-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
     }
 
     protected boolean shouldProcess(MavenProject project) {
@@ -488,13 +1196,13 @@ public abstract class AgentMojo extends WhitesourceMojo {
             if (!process) {
                 info("Skipping " + project.getId() + " (marked as ignored)");
             }
-        } else if (excludes.length > 0) {
-            process = !matchAny(project.getArtifactId(), excludes);
-            if (process) {
+        } else if (!moduleExcludes.isEmpty()) {
+            process = !moduleExcludes.matches(project.getGroupId(), project.getArtifactId(), project.getVersion());
+            if (!process) {
                 info("Skipping " + project.getId() + " (marked as excluded)");
             }
-        } else if (includes.length > 0) {
-            process = matchAny(project.getArtifactId(), includes);
+        } else if (!moduleIncludes.isEmpty()) {
+            process = moduleIncludes.matches(project.getGroupId(), project.getArtifactId(), project.getVersion());
             if (!process) {
                 info("Skipping " + project.getId() + " (not marked as included)");
             }
@@ -504,12 +1212,15 @@ public abstract class AgentMojo extends WhitesourceMojo {
 
     protected void generateReport(BaseCheckPoliciesResult result) throws MojoExecutionException {
         info("Generating Policy Check Report");
+        RunMetrics.Timer timer = metrics.start(RunMetrics.REPORT);
         try {
             PolicyCheckReport report = new PolicyCheckReport(result);
             report.generate(outputDirectory, false);
             report.generateJson(outputDirectory);
         } catch (IOException e) {
             throw new MojoExecutionException("Error generating report: " + e.getMessage(), e);
+        } finally {
+            timer.stop();
         }
     }
 
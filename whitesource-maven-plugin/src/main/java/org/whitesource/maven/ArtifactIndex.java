@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the resolved artifacts of a module by groupId, artifactId, version, classifier and type.
+ *
+ * <p>
+ *     A blank classifier and a blank type, which defaults to "jar", are normalized on both sides, so a dependency declared
+ *     without a classifier or type finds the artifact resolved with the defaults.
+ * </p>
+ */
+public class ArtifactIndex {
+
+    /* --- Static members --- */
+
+    private static final String DEFAULT_TYPE = "jar";
+
+    /* --- Private Members --- */
+
+    private final Map<String, Artifact> artifacts = new HashMap<String, Artifact>();
+
+    /* --- Constructors --- */
+
+    /**
+     * Indexes the direct and transitive artifacts of the project. When both hold the same coordinates,
+     * the one with a resolved file wins.
+     */
+    public ArtifactIndex(MavenProject project) {
+        add(project.getDependencyArtifacts());
+        add(project.getArtifacts());
+    }
+
+    /* --- Public methods --- */
+
+    public Artifact get(Dependency dependency) {
+        return artifacts.get(key(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(),
+                dependency.getClassifier(), dependency.getType()));
+    }
+
+    /**
+     * @return The resolved file of the artifact with the given coordinates, null if not resolved.
+     */
+    public File getFile(String groupId, String artifactId, String version, String classifier, String type) {
+        Artifact artifact = artifacts.get(key(groupId, artifactId, version, classifier, type));
+        return artifact == null ? null : artifact.getFile();
+    }
+
+    public int size() {
+        return artifacts.size();
+    }
+
+    /* --- Private methods --- */
+
+    private void add(Collection<Artifact> artifacts) {
+        if (artifacts == null) {
+            return;
+        }
+        for (Artifact artifact : artifacts) {
+            String key = key(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+                    artifact.getClassifier(), artifact.getType());
+            Artifact existing = this.artifacts.get(key);
+            if (existing == null || (existing.getFile() == null && artifact.getFile() != null)) {
+                this.artifacts.put(key, artifact);
+            }
+        }
+    }
+
+    private static String key(String groupId, String artifactId, String version, String classifier, String type) {
+        return groupId + ':' + artifactId + ':' + version + ':'
+                + (StringUtils.isBlank(classifier) ? "" : classifier) + ':'
+                + (StringUtils.isBlank(type) ? DEFAULT_TYPE : type);
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A request sent on a background thread while the build goes on, joined at the end of the Maven session.
+ *
+ * <p>
+ *     Pending updates are kept per session and joined by {@link WhitesourceLifecycleParticipant}, so updates are
+ *     only sent in the background when the plugin is loaded as a build extension. The join goal may join them
+ *     earlier in the build. An update that failed or didn't complete in time
+ *     fails the build if failOnError was set for the goal that started it, and is logged as an error otherwise.
+ * </p>
+ */
+public class BackgroundUpdate {
+
+    /* --- Static members --- */
+
+    private static final Map<MavenExecutionRequest, List<BackgroundUpdate>> PENDING =
+            new IdentityHashMap<MavenExecutionRequest, List<BackgroundUpdate>>();
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /* --- Private Members --- */
+
+    private final String name;
+    private final FutureTask<Void> task;
+    private final long timeoutMillis;
+    private final boolean failOnError;
+    private final Log log;
+
+    /* --- Constructors --- */
+
+    private BackgroundUpdate(String name, Callable<Void> callable, long timeoutMillis, boolean failOnError, Log log) {
+        this.name = name;
+        this.task = new FutureTask<Void>(callable);
+        this.timeoutMillis = timeoutMillis;
+        this.failOnError = failOnError;
+        this.log = log;
+    }
+
+    /* --- Static methods --- */
+
+    /**
+     * Starts the given task on a new thread and registers it to be joined at the end of the session.
+     *
+     * @param timeoutMillis Maximum time to wait for the task when joining it.
+     * @param failOnError   Whether a failure of the task fails the build.
+     */
+    public static BackgroundUpdate start(MavenSession session, String name, Callable<Void> callable, long timeoutMillis,
+                                         boolean failOnError, Log log) {
+        BackgroundUpdate update = new BackgroundUpdate(name, callable, timeoutMillis, failOnError, log);
+        synchronized (PENDING) {
+            // sessions of parallel builds are cloned per project, but share the request
+            List<BackgroundUpdate> updates = PENDING.get(session.getRequest());
+            if (updates == null) {
+                updates = new ArrayList<BackgroundUpdate>();
+                PENDING.put(session.getRequest(), updates);
+            }
+            updates.add(update);
+        }
+
+        Thread thread = new Thread(update.task, "whitesource-background-update-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+        return update;
+    }
+
+    /**
+     * Waits for all the updates started in the session, concurrently: each update is given its timeout from the
+     * start of the join, so waiting for one update doesn't add to the time allowed for the next ones.
+     *
+     * @return The number of updates joined.
+     *
+     * @throws MojoFailureException If an update of a goal configured to fail on error failed or timed out.
+     */
+    public static int joinAll(MavenSession session) throws MojoFailureException {
+        List<BackgroundUpdate> updates;
+        synchronized (PENDING) {
+            updates = PENDING.remove(session.getRequest());
+        }
+        if (updates == null) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        MojoFailureException failure = null;
+        for (BackgroundUpdate update : updates) {
+            try {
+                update.join(start + update.timeoutMillis);
+            } catch (MojoFailureException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return updates.size();
+    }
+
+    /* --- Public methods --- */
+
+    public void join() throws MojoFailureException {
+        join(System.currentTimeMillis() + timeoutMillis);
+    }
+
+    public boolean isDone() {
+        return task.isDone();
+    }
+
+    /* --- Private methods --- */
+
+    /**
+     * @param deadline Time in milliseconds at which the update is considered to have timed out.
+     */
+    private void join(long deadline) throws MojoFailureException {
+        if (!task.isDone()) {
+            log.info("Waiting for " + name + " to complete");
+        }
+
+        String message;
+        Throwable cause;
+        try {
+            task.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            return;
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            message = name + " did not complete within " + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis) + " seconds";
+            cause = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(true);
+            message = "Interrupted while waiting for " + name;
+            cause = e;
+        } catch (ExecutionException e) {
+            cause = e.getCause();
+            message = cause instanceof MojoExecutionException || cause instanceof MojoFailureException
+                    ? cause.getMessage() : name + " failed: " + cause.getMessage();
+        }
+
+        if (failOnError) {
+            log.debug(message, cause);
+            throw new MojoFailureException(message);
+        }
+        log.debug(message, cause);
+        log.error(message);
+    }
+}
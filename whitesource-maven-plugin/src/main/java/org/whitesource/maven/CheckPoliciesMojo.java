@@ -69,6 +69,9 @@ public class CheckPoliciesMojo extends AgentMojo {
 
         // initialize
         init();
+        if (!offline) {
+            warmUpConnection();
+        }
 
         // Collect OSS usage information
         Collection<AgentProjectInfo> projectInfos = extractProjectInfos();
@@ -76,6 +79,8 @@ public class CheckPoliciesMojo extends AgentMojo {
         // send to white source
         if (projectInfos == null || projectInfos.isEmpty()) {
             info("No open source information found.");
+        } else if (offline) {
+            writeOfflineRequest(OfflineRequest.CHECK_POLICY_COMPLIANCE, projectInfos, forceCheckAllDependencies);
         } else {
             sendCheckPolicies(projectInfos);
         }
@@ -93,8 +98,7 @@ public class CheckPoliciesMojo extends AgentMojo {
     private void sendCheckPolicies(Collection<AgentProjectInfo> projectInfos) throws MojoFailureException, MojoExecutionException {
         try {
             info("Checking Policies");
-            CheckPolicyComplianceResult result = service.checkPolicyCompliance(
-                    orgToken, product, productVersion, projectInfos, forceCheckAllDependencies);
+            CheckPolicyComplianceResult result = sendCheckPoliciesRequest(projectInfos, forceCheckAllDependencies);
 
             if (outputDirectory == null ||
                     (!outputDirectory.exists() && !outputDirectory.mkdirs())) {
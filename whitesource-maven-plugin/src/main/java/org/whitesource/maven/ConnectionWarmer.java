@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.client.WssServiceException;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Opens a connection to WhiteSource in the background, while the plugin is busy resolving dependencies.
+ *
+ * <p>
+ *     Host resolution, proxy tunneling and TLS negotiation are then done by the time the first request is sent.
+ *     The connection itself is reused by the streaming client, the stock client benefits from the resolved host
+ *     and TLS session. If the warm-up couldn't reach WhiteSource at all, requests fail right away
+ *     instead of being prepared and sent to an unreachable endpoint.
+ * </p>
+ */
+public class ConnectionWarmer {
+
+    /* --- Private Members --- */
+
+    private final FutureTask<Integer> task;
+
+    /* --- Constructors --- */
+
+    private ConnectionWarmer(final StreamingServiceClient client) {
+        task = new FutureTask<Integer>(new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+                return client.warmUp();
+            }
+        });
+    }
+
+    /* --- Static methods --- */
+
+    public static ConnectionWarmer start(StreamingServiceClient client) {
+        ConnectionWarmer warmer = new ConnectionWarmer(client);
+        Thread thread = new Thread(warmer.task, "whitesource-connection-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+        return warmer;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Waits for the warm-up to complete, bounded by the connection timeouts.
+     *
+     * @throws WssServiceException If WhiteSource couldn't be reached.
+     */
+    public void await() throws WssServiceException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WssServiceException("Interrupted while connecting to WhiteSource", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new WssServiceException("WhiteSource is unreachable: " + cause.getMessage(), cause);
+        }
+    }
+}
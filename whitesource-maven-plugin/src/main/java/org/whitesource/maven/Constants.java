@@ -42,6 +42,8 @@ public final class Constants {
 	public static final String IGNORE = PLUGIN_PREFIX + "ignore";
 	public static final String INCLUDES = PLUGIN_PREFIX + "includes";
 	public static final String EXCLUDES = PLUGIN_PREFIX + "excludes";
+	public static final String DEPENDENCY_INCLUDES = PLUGIN_PREFIX + "dependencyIncludes";
+	public static final String DEPENDENCY_EXCLUDES = PLUGIN_PREFIX + "dependencyExcludes";
 	public static final String SCOPE = PLUGIN_PREFIX + "scope";
 	public static final String IGNORE_POM_MODULES = PLUGIN_PREFIX + "ignorePomModules";
 	public static final String AGGREGATE_MODULES = PLUGIN_PREFIX + "aggregateModules";
@@ -52,12 +54,55 @@ public final class Constants {
 	public static final String SKIP = PLUGIN_PREFIX + "skip";
 	public static final String ALTERNATIVE_SERVICE_URL_KEYWORD = PLUGIN_PREFIX + "wssUrl";
 	public static final String AUTO_DETECT_PROXY_SETTINGS = PLUGIN_PREFIX + "autoDetectProxySettings";
+	public static final String USE_STREAMING_REQUESTS = PLUGIN_PREFIX + "useStreamingRequests";
+	public static final String USE_CHECKSUM_CACHE = PLUGIN_PREFIX + "useChecksumCache";
+	public static final String CHECKSUM_CACHE_DIRECTORY = PLUGIN_PREFIX + "checksumCacheDirectory";
+	public static final String CHECKSUM_CACHE_MAX_ENTRIES = PLUGIN_PREFIX + "checksumCacheMaxEntries";
+	public static final String CHECKSUM_CACHE_MAX_AGE_DAYS = PLUGIN_PREFIX + "checksumCacheMaxAgeDays";
+	public static final String USE_CHECKSUM_SIDECARS = PLUGIN_PREFIX + "useChecksumSidecars";
+	public static final String CHECKSUM_SIDECAR_VERIFICATION_RATE = PLUGIN_PREFIX + "checksumSidecarVerificationRate";
+	public static final String CHECKSUM_THREADS = PLUGIN_PREFIX + "checksumThreads";
+	public static final String CHECKSUM_MAX_MEGABYTES_IN_FLIGHT = PLUGIN_PREFIX + "checksumMaxMegabytesInFlight";
+	public static final String MODULE_PARALLELISM = PLUGIN_PREFIX + "moduleParallelism";
+	public static final String USE_VIRTUAL_THREADS = PLUGIN_PREFIX + "useVirtualThreads";
+	public static final String PIPELINE_MODULES = PLUGIN_PREFIX + "pipelineModules";
+	public static final String PIPELINE_QUEUE_CAPACITY = PLUGIN_PREFIX + "pipelineQueueCapacity";
+	public static final String REQUEST_BATCH_MAX_MODULES = PLUGIN_PREFIX + "requestBatchMaxModules";
+	public static final String REQUEST_BATCH_MAX_MEGABYTES = PLUGIN_PREFIX + "requestBatchMaxMegabytes";
+	public static final String REQUEST_PARALLELISM = PLUGIN_PREFIX + "requestParallelism";
+	public static final String STATE_DIRECTORY = PLUGIN_PREFIX + "stateDirectory";
+	public static final String SKIP_UNCHANGED_MODULES = PLUGIN_PREFIX + "skipUnchangedModules";
+	public static final String FORCE_FULL_UPDATE = PLUGIN_PREFIX + "forceFullUpdate";
+	public static final String USE_POLICY_CHECK_CACHE = PLUGIN_PREFIX + "usePolicyCheckCache";
+	public static final String POLICY_CHECK_CACHE_DIRECTORY = PLUGIN_PREFIX + "policyCheckCacheDirectory";
+	public static final String POLICY_CHECK_CACHE_TTL_MINUTES = PLUGIN_PREFIX + "policyCheckCacheTtlMinutes";
+	public static final String OFFLINE = PLUGIN_PREFIX + "offline";
+	public static final String REQUEST_FILES = PLUGIN_PREFIX + "requestFiles";
+	public static final String REQUEST_DIRECTORY = PLUGIN_PREFIX + "requestDirectory";
+	public static final String UPLOAD_PARALLELISM = PLUGIN_PREFIX + "uploadParallelism";
+	public static final String ASYNC = PLUGIN_PREFIX + "async";
+	public static final String ASYNC_TIMEOUT_SECONDS = PLUGIN_PREFIX + "asyncTimeoutSeconds";
+	public static final String SERVICE_RETRIES = PLUGIN_PREFIX + "serviceRetries";
+	public static final String SERVICE_RETRY_DELAY_MILLIS = PLUGIN_PREFIX + "serviceRetryDelayMillis";
+	public static final String SERVICE_RETRY_MAX_DELAY_MILLIS = PLUGIN_PREFIX + "serviceRetryMaxDelayMillis";
+	public static final String SERVICE_CALL_DEADLINE_SECONDS = PLUGIN_PREFIX + "serviceCallDeadlineSeconds";
+	public static final String CIRCUIT_BREAKER_THRESHOLD = PLUGIN_PREFIX + "circuitBreakerThreshold";
+	public static final String WARM_UP_CONNECTION = PLUGIN_PREFIX + "warmUpConnection";
+	public static final String WRITE_METRICS = PLUGIN_PREFIX + "writeMetrics";
+	public static final String METRICS_PROMETHEUS_FILE = PLUGIN_PREFIX + "metricsPrometheusFile";
 
 	/* --- Errors --- */
 
 	public static final String ERROR_SERVICE_CONNECTION = "Error communicating with service: ";
 	public static final String ERROR_SHA1 = "Error calculating SHA-1";
 
+	/* --- Defaults --- */
+
+	public static final String CHECKSUM_CACHE_FOLDER = ".whitesource/checksums";
+	public static final String MODULE_FINGERPRINTS_FILE = "module-fingerprints.properties";
+	public static final String POLICY_CHECK_CACHE_FOLDER = ".whitesource/policy-checks";
+	public static final String METRICS_FILE = "whitesource-metrics.json";
+
 	/* --- Constructors --- */
 
 	/**
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.api.model.ExclusionInfo;
+
+import java.util.*;
+
+/**
+ * Flattens the dependency trees of several modules into a single list without duplicates.
+ *
+ * <p>
+ *     Dependencies are identified by their coordinates, classifier, type and SHA-1. The first occurrence determines the
+ *     position in the list. When the same dependency appears with different scopes, the widest scope is kept
+ *     (compile, runtime, provided, system, test),
+ *     a missing scope counts as compile. It is optional only if all of its occurrences are optional.
+ * </p>
+ *
+ * <p>
+ *     Trees are walked iteratively and subtrees shared between modules are visited once.
+ *     The source trees are not modified, flattened dependencies are copies without children.
+ * </p>
+ */
+public class DependencyAggregator {
+
+    /* --- Static members --- */
+
+    private static final List<String> SCOPE_PRECEDENCE = Arrays.asList(Artifact.SCOPE_COMPILE, Artifact.SCOPE_RUNTIME,
+            Artifact.SCOPE_PROVIDED, Artifact.SCOPE_SYSTEM, Artifact.SCOPE_TEST);
+
+    /* --- Private Members --- */
+
+    private final Map<String, DependencyInfo> dependencies = new LinkedHashMap<String, DependencyInfo>();
+    private final Set<DependencyInfo> visited = Collections.newSetFromMap(new IdentityHashMap<DependencyInfo, Boolean>());
+
+    /* --- Public methods --- */
+
+    public void add(Collection<AgentProjectInfo> projectInfos) {
+        for (AgentProjectInfo projectInfo : projectInfos) {
+            addDependencies(projectInfo.getDependencies());
+        }
+    }
+
+    /**
+     * @param roots Dependency trees to add along with all their children.
+     */
+    public void addDependencies(Collection<DependencyInfo> roots) {
+        Deque<DependencyInfo> stack = new ArrayDeque<DependencyInfo>();
+        pushAll(stack, roots);
+        while (!stack.isEmpty()) {
+            DependencyInfo dependency = stack.pop();
+            if (visited.add(dependency)) {
+                merge(dependency);
+                pushAll(stack, dependency.getChildren());
+            }
+        }
+    }
+
+    /**
+     * @return The flat list of unique dependencies.
+     */
+    public Collection<DependencyInfo> getDependencies() {
+        return dependencies.values();
+    }
+
+    /* --- Private methods --- */
+
+    private void merge(DependencyInfo dependency) {
+        String key = dependency.getGroupId() + ':' + dependency.getArtifactId() + ':' + dependency.getVersion() + ':'
+                + dependency.getClassifier() + ':' + dependency.getType() + ':' + dependency.getSha1();
+        DependencyInfo merged = dependencies.get(key);
+        if (merged == null) {
+            dependencies.put(key, copy(dependency));
+        } else {
+            merged.setScope(widest(merged.getScope(), dependency.getScope()));
+            merged.setOptional(merged.getOptional() && dependency.getOptional());
+        }
+    }
+
+    private static void pushAll(Deque<DependencyInfo> stack, Collection<DependencyInfo> dependencies) {
+        if (dependencies == null || dependencies.isEmpty()) {
+            return;
+        }
+
+        // push in reverse so dependencies are popped in their original order
+        List<DependencyInfo> reversed = new ArrayList<DependencyInfo>(dependencies);
+        for (int i = reversed.size() - 1; i >= 0; i--) {
+            stack.push(reversed.get(i));
+        }
+    }
+
+    private static DependencyInfo copy(DependencyInfo dependency) {
+        DependencyInfo copy = new DependencyInfo();
+        copy.setGroupId(dependency.getGroupId());
+        copy.setArtifactId(dependency.getArtifactId());
+        copy.setVersion(dependency.getVersion());
+        copy.setScope(dependency.getScope());
+        copy.setClassifier(dependency.getClassifier());
+        copy.setOptional(dependency.getOptional());
+        copy.setType(dependency.getType());
+        copy.setSystemPath(dependency.getSystemPath());
+        copy.setSha1(dependency.getSha1());
+        copy.setExclusions(new ArrayList<ExclusionInfo>(dependency.getExclusions()));
+        return copy;
+    }
+
+    private static String widest(String scope1, String scope2) {
+        return precedence(scope2) < precedence(scope1) ? scope2 : scope1;
+    }
+
+    private static int precedence(String scope) {
+        if (StringUtils.isBlank(scope)) {
+            // maven's default scope
+            return 0;
+        }
+        int index = SCOPE_PRECEDENCE.indexOf(scope);
+        return index < 0 ? SCOPE_PRECEDENCE.size() : index;
+    }
+}
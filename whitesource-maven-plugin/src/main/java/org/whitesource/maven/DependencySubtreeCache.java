@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.api.model.ExclusionInfo;
+import org.whitesource.maven.utils.dependencies.CompactDependencyGraph;
+import org.whitesource.maven.utils.filter.CoordinatesFilter;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts resolved {@link CompactDependencyGraph}s into {@link DependencyInfo} trees, sharing identical subtrees across modules.
+ *
+ * <p>
+ *     A subtree is identified by the coordinates, scope, optional flag, exclusions and artifact file of its root,
+ *     along with the identity of its children. Since the resolved children already reflect the exclusions and
+ *     dependency management in effect, two modules get the same {@link DependencyInfo} instance only if they
+ *     resolved exactly the same subtree. Shared instances must not be modified once converted,
+ *     their children are read only so that code flattening or pruning a tree fails instead of corrupting other modules.
+ * </p>
+ *
+ * <p>
+ *     This class is thread safe, modules may be converted concurrently.
+ * </p>
+ */
+public class DependencySubtreeCache {
+
+    /* --- Private Members --- */
+
+    private final ConcurrentMap<String, Subtree> subtrees = new ConcurrentHashMap<String, Subtree>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final AtomicInteger reused = new AtomicInteger();
+
+    /* --- Public methods --- */
+
+    /**
+     * @param graph         The resolved graph of a module.
+     * @param roots         Nodes of the graph to convert, usually direct dependencies of the module.
+     * @param filter        Dependencies to keep, rejected nodes are skipped along with their subtree. Null keeps all nodes.
+     * @param artifactIndex Resolved artifacts of the module, used for nodes the graph has no file for. May be null.
+     * @param artifactFiles Collects the artifact file of every converted node, for checksum calculation.
+     *
+     * @return The converted subtree of each accepted root, in the same order.
+     */
+    public List<DependencyInfo> convert(CompactDependencyGraph graph, List<Integer> roots, CoordinatesFilter filter,
+                                        ArtifactIndex artifactIndex, Map<File, Collection<DependencyInfo>> artifactFiles) {
+        int nodeCount = graph.getNodeCount();
+        boolean[] selected = new boolean[nodeCount];
+        if (filter == null || filter.isEmpty()) {
+            for (int root : roots) {
+                Arrays.fill(selected, root, graph.getSubtreeEnd(root), true);
+            }
+        } else {
+            // coordinates are shared by many nodes, evaluate each of them once
+            byte[] accepted = new byte[graph.getCoordinateCount()];
+            for (int root : roots) {
+                int end = graph.getSubtreeEnd(root);
+                int node = root;
+                while (node < end) {
+                    if (accept(graph, graph.getCoordinate(node), filter, accepted)) {
+                        selected[node] = true;
+                        node++;
+                    } else {
+                        node = graph.getSubtreeEnd(node);
+                    }
+                }
+            }
+        }
+
+        // children always have a larger index than their parent, so going backwards converts them first
+        Subtree[] converted = new Subtree[nodeCount];
+        for (int node = nodeCount - 1; node > CompactDependencyGraph.ROOT; node--) {
+            if (selected[node]) {
+                converted[node] = getSubtree(graph, node, artifactIndex, converted);
+            }
+        }
+
+        List<DependencyInfo> infos = new ArrayList<DependencyInfo>(roots.size());
+        Set<Subtree> visited = Collections.newSetFromMap(new IdentityHashMap<Subtree, Boolean>());
+        for (int root : roots) {
+            Subtree subtree = converted[root];
+            if (subtree == null) {
+                continue;
+            }
+            collectArtifactFiles(subtree, artifactFiles, visited);
+            infos.add(subtree.info);
+        }
+        return infos;
+    }
+
+    /**
+     * @return Number of distinct subtrees converted.
+     */
+    public int getConverted() {
+        return subtrees.size();
+    }
+
+    /**
+     * @return Number of times a converted subtree was reused.
+     */
+    public int getReused() {
+        return reused.get();
+    }
+
+    /* --- Static methods --- */
+
+    static void addArtifactFile(Map<File, Collection<DependencyInfo>> artifactFiles, File artifactFile, DependencyInfo info) {
+        Collection<DependencyInfo> infos = artifactFiles.get(artifactFile);
+        if (infos == null) {
+            infos = new ArrayList<DependencyInfo>(1);
+            artifactFiles.put(artifactFile, infos);
+        }
+        infos.add(info);
+    }
+
+    /* --- Private methods --- */
+
+    private static boolean accept(CompactDependencyGraph graph, int coordinate, CoordinatesFilter filter, byte[] accepted) {
+        if (accepted[coordinate] == 0) {
+            boolean accept = filter.accept(graph.getGroupId(coordinate), graph.getArtifactId(coordinate), graph.getVersion(coordinate));
+            accepted[coordinate] = (byte) (accept ? 1 : -1);
+        }
+        return accepted[coordinate] > 0;
+    }
+
+    private Subtree getSubtree(CompactDependencyGraph graph, int node, ArtifactIndex artifactIndex, Subtree[] converted) {
+        int coordinate = graph.getCoordinate(node);
+        File artifactFile = graph.getFile(coordinate);
+        if (artifactFile == null && artifactIndex != null) {
+            artifactFile = artifactIndex.getFile(graph.getGroupId(coordinate), graph.getArtifactId(coordinate),
+                    graph.getVersion(coordinate), graph.getClassifier(coordinate), graph.getType(coordinate));
+        }
+        if (artifactFile != null && !artifactFile.exists()) {
+            artifactFile = null;
+        }
+
+        StringBuilder key = new StringBuilder();
+        key.append(graph.getGroupId(coordinate)).append(':')
+                .append(graph.getArtifactId(coordinate)).append(':')
+                .append(graph.getVersion(coordinate)).append(':')
+                .append(graph.getClassifier(coordinate)).append(':')
+                .append(graph.getType(coordinate)).append(':')
+                .append(graph.getScope(node)).append(':')
+                .append(graph.isOptional(node)).append(':')
+                .append(artifactFile == null ? "" : artifactFile.getAbsolutePath()).append('|');
+        int exclusionCount = graph.getExclusionCount(node);
+        for (int i = 0; i < exclusionCount; i++) {
+            key.append(graph.getExclusionGroupId(node, i)).append(':').append(graph.getExclusionArtifactId(node, i)).append(',');
+        }
+
+        // children are part of the identity of this subtree
+        List<Subtree> children = new ArrayList<Subtree>();
+        key.append('[');
+        for (int child = graph.getFirstChild(node); child != CompactDependencyGraph.NONE; child = graph.getNextSibling(child)) {
+            Subtree childSubtree = converted[child];
+            if (childSubtree == null) {
+                continue;
+            }
+            children.add(childSubtree);
+            key.append(childSubtree.id).append(',');
+        }
+        key.append(']');
+
+        String subtreeKey = key.toString();
+        Subtree subtree = subtrees.get(subtreeKey);
+        if (subtree == null) {
+            Subtree created = new Subtree(ids.incrementAndGet(), createDependencyInfo(graph, node, artifactFile, children),
+                    artifactFile, children);
+            subtree = subtrees.putIfAbsent(subtreeKey, created);
+            if (subtree == null) {
+                subtree = created;
+            } else {
+                reused.incrementAndGet();
+            }
+        } else {
+            reused.incrementAndGet();
+        }
+        return subtree;
+    }
+
+    private DependencyInfo createDependencyInfo(CompactDependencyGraph graph, int node, File artifactFile, List<Subtree> children) {
+        DependencyInfo info = new DependencyInfo();
+
+        // dependency data
+        int coordinate = graph.getCoordinate(node);
+        info.setGroupId(graph.getGroupId(coordinate));
+        info.setArtifactId(graph.getArtifactId(coordinate));
+        info.setVersion(graph.getVersion(coordinate));
+        info.setScope(graph.getScope(node));
+        info.setClassifier(graph.getClassifier(coordinate));
+        info.setOptional(graph.isOptional(node));
+        info.setType(graph.getType(coordinate));
+
+        // SHA-1 is calculated once the whole graph is converted
+        if (artifactFile != null) {
+            info.setSystemPath(artifactFile.getAbsolutePath());
+        }
+
+        // exclusions
+        int exclusionCount = graph.getExclusionCount(node);
+        for (int i = 0; i < exclusionCount; i++) {
+            info.getExclusions().add(new ExclusionInfo(graph.getExclusionArtifactId(node, i), graph.getExclusionGroupId(node, i)));
+        }
+
+        // children, read only as the subtree may be shared with other modules
+        List<DependencyInfo> childInfos = new ArrayList<DependencyInfo>(children.size());
+        for (Subtree child : children) {
+            childInfos.add(child.info);
+        }
+        info.setChildren(Collections.unmodifiableList(childInfos));
+
+        return info;
+    }
+
+    private void collectArtifactFiles(Subtree subtree, Map<File, Collection<DependencyInfo>> artifactFiles, Set<Subtree> visited) {
+        if (!visited.add(subtree)) {
+            return;
+        }
+        if (subtree.artifactFile != null) {
+            addArtifactFile(artifactFiles, subtree.artifactFile, subtree.info);
+        }
+        for (Subtree child : subtree.children) {
+            collectArtifactFiles(child, artifactFiles, visited);
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    private static class Subtree {
+
+        private final int id;
+        private final DependencyInfo info;
+        private final File artifactFile;
+        private final List<Subtree> children;
+
+        private Subtree(int id, DependencyInfo info, File artifactFile, List<Subtree> children) {
+            this.id = id;
+            this.info = info;
+            this.artifactFile = artifactFile;
+            this.children = children;
+        }
+    }
+}
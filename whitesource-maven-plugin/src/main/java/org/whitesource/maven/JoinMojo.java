@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Wait for the updates sent in the background by the update goal.
+ *
+ * <p>
+ *     The updates are joined at the end of the session anyway, this goal joins them earlier, e.g. ahead of
+ *     a step relying on the update. Should be bound to a phase running after everything the updates should overlap with.
+ * </p>
+ */
+@Mojo(name = "join",
+        defaultPhase = LifecyclePhase.DEPLOY,
+        requiresProject = false,
+        aggregator = true )
+public class JoinMojo extends AbstractMojo {
+
+    /* --- Members --- */
+
+    @Component
+    protected MavenSession session;
+
+    /* --- Concrete implementation methods --- */
+
+    @Override
+    public void execute() throws MojoFailureException {
+        int joined = BackgroundUpdate.joinAll(session);
+        if (joined == 0) {
+            getLog().debug("No background updates to join");
+        }
+    }
+}
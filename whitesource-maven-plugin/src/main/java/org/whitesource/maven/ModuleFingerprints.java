@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.Coordinates;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Fingerprints of the modules last sent to WhiteSource, persisted in a properties file.
+ *
+ * <p>
+ *     A module fingerprint combines the destination (organization, product and version)
+ *     with the {@link ProjectFingerprinter} fingerprint of the module.
+ * </p>
+ */
+public class ModuleFingerprints {
+
+    /* --- Private Members --- */
+
+    private final File file;
+    private final String orgToken;
+    private final String product;
+    private final String productVersion;
+    private final Properties fingerprints = new Properties();
+    private final ProjectFingerprinter fingerprinter = new ProjectFingerprinter();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param file           File holding the fingerprints, loaded if it exists.
+     * @param orgToken       Organization the modules are sent to.
+     * @param product        Product the modules are sent to.
+     * @param productVersion Version of the product.
+     *
+     * @throws IOException If the file exists but can't be read.
+     */
+    public ModuleFingerprints(File file, String orgToken, String product, String productVersion) throws IOException {
+        this.file = file;
+        this.orgToken = orgToken;
+        this.product = product;
+        this.productVersion = productVersion;
+        if (file.isFile()) {
+            InputStream is = new FileInputStream(file);
+            try {
+                fingerprints.load(is);
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return The fingerprint of the module, as sent to the configured destination.
+     */
+    public String fingerprint(AgentProjectInfo projectInfo) {
+        return ProjectFingerprinter.fingerprint(Arrays.asList(orgToken, product, productVersion,
+                fingerprinter.fingerprint(projectInfo)));
+    }
+
+    /**
+     * @return True if the module was last sent with the given fingerprint.
+     */
+    public boolean isUnchanged(AgentProjectInfo projectInfo, String fingerprint) {
+        return fingerprint.equals(fingerprints.getProperty(key(projectInfo)));
+    }
+
+    /**
+     * Records the fingerprint of a module that was sent, call {@link #save()} to persist it.
+     */
+    public void record(AgentProjectInfo projectInfo, String fingerprint) {
+        fingerprints.setProperty(key(projectInfo), fingerprint);
+    }
+
+    /**
+     * Writes the fingerprints to a temporary file first, so an interrupted build never leaves a partial file.
+     */
+    public void save() throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory.getAbsolutePath());
+        }
+
+        File tmp = new File(directory, file.getName() + ".tmp");
+        OutputStream os = new FileOutputStream(tmp);
+        try {
+            fingerprints.store(os, "WhiteSource module fingerprints");
+        } finally {
+            os.close();
+        }
+        if (!tmp.renameTo(file)) {
+            // renameTo doesn't replace existing files on all platforms
+            if (!file.delete() || !tmp.renameTo(file)) {
+                throw new IOException("Unable to write " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private String key(AgentProjectInfo projectInfo) {
+        Coordinates coordinates = projectInfo.getCoordinates();
+        return coordinates.getGroupId() + ':' + coordinates.getArtifactId();
+    }
+}
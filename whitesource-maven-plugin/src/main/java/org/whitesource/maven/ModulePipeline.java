@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.project.MavenProject;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.client.WssServiceException;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes modules through resolution, hashing and upload stages running concurrently.
+ *
+ * <p>
+ *     Stages are connected by bounded queues, a stage that gets ahead blocks until the next one catches up,
+ *     so only a bounded number of modules is held in memory. While a module is hashed, hashing of the next
+ *     queued module is started ahead of time. The first failure in any stage stops the whole pipeline.
+ * </p>
+ */
+public abstract class ModulePipeline {
+
+    /* --- Static members --- */
+
+    private static final Object END = new Object();
+
+    /* --- Private Members --- */
+
+    private final int resolveThreads;
+    private final int queueCapacity;
+    private final ThreadFactory threadFactory;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param resolveThreads Number of modules resolved concurrently.
+     * @param queueCapacity  Maximum number of modules waiting between two stages.
+     * @param threadFactory  Creates the threads of all stages.
+     */
+    protected ModulePipeline(int resolveThreads, int queueCapacity, ThreadFactory threadFactory) {
+        this.resolveThreads = Math.max(1, resolveThreads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.threadFactory = threadFactory;
+    }
+
+    /* --- Abstract methods --- */
+
+    /**
+     * Resolves the module and converts its dependencies, without checksums.
+     */
+    protected abstract PreparedModule resolve(MavenProject project) throws Exception;
+
+    /**
+     * Starts hashing the artifacts of a module in the background.
+     */
+    protected abstract void prefetch(PreparedModule module);
+
+    /**
+     * Sets the checksums of the module dependencies.
+     */
+    protected abstract void hash(PreparedModule module) throws Exception;
+
+    protected abstract void upload(AgentProjectInfo projectInfo) throws Exception;
+
+    /* --- Public methods --- */
+
+    /**
+     * @param projects Modules to process, in the order they should be resolved.
+     *
+     * @return The processed modules, by project.
+     *
+     * @throws ExecutionException   Wraps the first failure of any stage.
+     * @throws InterruptedException If interrupted while waiting for the stages.
+     */
+    public Map<MavenProject, AgentProjectInfo> run(List<MavenProject> projects) throws ExecutionException, InterruptedException {
+        final Queue<MavenProject> pending = new ConcurrentLinkedQueue<MavenProject>(projects);
+        final BlockingQueue<Object> hashQueue = new ArrayBlockingQueue<Object>(queueCapacity);
+        final BlockingQueue<Object> uploadQueue = new ArrayBlockingQueue<Object>(queueCapacity);
+        final Map<MavenProject, AgentProjectInfo> completed =
+                Collections.synchronizedMap(new IdentityHashMap<MavenProject, AgentProjectInfo>());
+        final AtomicInteger runningResolvers = new AtomicInteger(resolveThreads);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(resolveThreads + 2, threadFactory);
+        CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executorService);
+        try {
+            for (int i = 0; i < resolveThreads; i++) {
+                completionService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        try {
+                            MavenProject project;
+                            while ((project = pending.poll()) != null) {
+                                hashQueue.put(resolve(project));
+                            }
+                        } finally {
+                            if (runningResolvers.decrementAndGet() == 0) {
+                                hashQueue.put(END);
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+
+            completionService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    PreparedModule prefetched = null;
+                    Object item;
+                    while ((item = hashQueue.take()) != END) {
+                        // read ahead the next module while this one is hashed
+                        Object next = hashQueue.peek();
+                        if (next instanceof PreparedModule && next != prefetched) {
+                            prefetched = (PreparedModule) next;
+                            prefetch(prefetched);
+                        }
+                        PreparedModule module = (PreparedModule) item;
+                        hash(module);
+                        uploadQueue.put(module);
+                    }
+                    uploadQueue.put(END);
+                    return null;
+                }
+            });
+
+            completionService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Object item;
+                    while ((item = uploadQueue.take()) != END) {
+                        PreparedModule module = (PreparedModule) item;
+                        upload(module.getProjectInfo());
+                        completed.put(module.getProject(), module.getProjectInfo());
+                    }
+                    return null;
+                }
+            });
+
+            // fail fast, stages blocked on a full or empty queue are interrupted by the shutdown below
+            for (int i = 0; i < resolveThreads + 2; i++) {
+                completionService.take().get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        return completed;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * A resolved module, along with the artifact files it still needs checksums for.
+     */
+    public static class PreparedModule {
+
+        private final MavenProject project;
+        private final AgentProjectInfo projectInfo;
+        private final Map<File, Collection<DependencyInfo>> artifactFiles;
+
+        public PreparedModule(MavenProject project, AgentProjectInfo projectInfo, Map<File, Collection<DependencyInfo>> artifactFiles) {
+            this.project = project;
+            this.projectInfo = projectInfo;
+            this.artifactFiles = artifactFiles;
+        }
+
+        public MavenProject getProject() {
+            return project;
+        }
+
+        public AgentProjectInfo getProjectInfo() {
+            return projectInfo;
+        }
+
+        public Map<File, Collection<DependencyInfo>> getArtifactFiles() {
+            return artifactFiles;
+        }
+    }
+
+    /**
+     * Sends a single module.
+     */
+    public interface Uploader {
+
+        void upload(AgentProjectInfo projectInfo) throws WssServiceException;
+    }
+}
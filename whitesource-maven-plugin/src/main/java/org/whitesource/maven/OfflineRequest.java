@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A request prepared by the plugin and kept on disk to be sent later by the upload goal.
+ *
+ * <p>
+ *     Requests are stored as gzipped JSON, streamed to and from the file. The file name is derived from
+ *     a fingerprint of the request, so preparing the same request twice yields a single file.
+ * </p>
+ */
+public class OfflineRequest {
+
+    /* --- Static members --- */
+
+    public static final String UPDATE = "UPDATE";
+    public static final String CHECK_POLICY_COMPLIANCE = "CHECK_POLICY_COMPLIANCE";
+
+    public static final String FILE_PREFIX = "whitesource-request-";
+    public static final String FILE_SUFFIX = ".json.gz";
+
+    private static final String UTF_8 = "UTF-8";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /* --- Members --- */
+
+    private String type;
+    private String orgToken;
+    private String requesterEmail;
+    private String product;
+    private String productVersion;
+    private boolean forceCheckAllDependencies;
+    private Collection<AgentProjectInfo> projects = new ArrayList<AgentProjectInfo>();
+
+    /* --- Constructors --- */
+
+    public OfflineRequest() {
+    }
+
+    public OfflineRequest(String type, String orgToken, String requesterEmail, String product, String productVersion,
+                          boolean forceCheckAllDependencies, Collection<AgentProjectInfo> projects) {
+        this.type = type;
+        this.orgToken = orgToken;
+        this.requesterEmail = requesterEmail;
+        this.product = product;
+        this.productVersion = productVersion;
+        this.forceCheckAllDependencies = forceCheckAllDependencies;
+        this.projects = projects;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Writes the request into the given directory.
+     *
+     * @param fingerprint Fingerprint of the request content, used as the file name.
+     *
+     * @return The request file.
+     */
+    public File write(File directory, String fingerprint) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory.getAbsolutePath());
+        }
+
+        File file = new File(directory, FILE_PREFIX + type.toLowerCase() + "-" + fingerprint + FILE_SUFFIX);
+        File tmp = new File(directory, file.getName() + ".tmp");
+        // the request holds the organization token, only the owner may read it
+        if (!tmp.createNewFile() && !tmp.isFile()) {
+            throw new IOException("Unable to create " + tmp.getAbsolutePath());
+        }
+        tmp.setReadable(false, false);
+        tmp.setReadable(true, true);
+        tmp.setWritable(false, false);
+        tmp.setWritable(true, true);
+        Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(tmp), BUFFER_SIZE), UTF_8);
+        try {
+            new Gson().toJson(this, writer);
+        } finally {
+            writer.close();
+        }
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+            tmp.delete();
+            throw new IOException("Unable to write " + file.getAbsolutePath());
+        }
+        return file;
+    }
+
+    public static OfflineRequest read(File file) throws IOException {
+        Reader reader = new InputStreamReader(new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE), UTF_8);
+        try {
+            OfflineRequest request = new Gson().fromJson(reader, OfflineRequest.class);
+            if (request == null || request.type == null) {
+                throw new IOException("Not a WhiteSource request file: " + file.getAbsolutePath());
+            }
+            return request;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid WhiteSource request file " + file.getAbsolutePath() + ": " + e.getMessage(), e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /* --- Getters --- */
+
+    public String getType() {
+        return type;
+    }
+
+    public String getOrgToken() {
+        return orgToken;
+    }
+
+    public String getRequesterEmail() {
+        return requesterEmail;
+    }
+
+    public String getProduct() {
+        return product;
+    }
+
+    public String getProductVersion() {
+        return productVersion;
+    }
+
+    public boolean isForceCheckAllDependencies() {
+        return forceCheckAllDependencies;
+    }
+
+    public Collection<AgentProjectInfo> getProjects() {
+        return projects;
+    }
+}
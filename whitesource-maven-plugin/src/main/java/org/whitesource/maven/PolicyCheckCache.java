@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
+
+import java.io.*;
+
+/**
+ * Keeps policy check results on disk for a limited time, keyed by a fingerprint of the request.
+ *
+ * <p>
+ *     Each result is stored as JSON in its own file, written to a temporary file first and renamed in place,
+ *     so several builds may share the cache. Expired and unreadable entries are ignored and deleted.
+ * </p>
+ */
+public class PolicyCheckCache {
+
+    /* --- Static members --- */
+
+    private static final String UTF_8 = "UTF-8";
+    private static final String SUFFIX = ".json";
+
+    /* --- Private Members --- */
+
+    private final File directory;
+    private final long timeToLive;
+    private final Gson gson = new Gson();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param directory  Directory of the cache, created when needed.
+     * @param timeToLive Time in milliseconds a result is reused for.
+     */
+    public PolicyCheckCache(File directory, long timeToLive) {
+        this.directory = directory;
+        this.timeToLive = timeToLive;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @param key Fingerprint of the request.
+     *
+     * @return The cached result, null if missing or expired.
+     */
+    public CheckPolicyComplianceResult get(String key) {
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        if (isExpired(file)) {
+            file.delete();
+            return null;
+        }
+
+        try {
+            Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+            try {
+                return gson.fromJson(reader, CheckPolicyComplianceResult.class);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (JsonParseException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    public void put(String key, CheckPolicyComplianceResult result) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory.getAbsolutePath());
+        }
+
+        File file = getFile(key);
+        File tmp = File.createTempFile(key, ".tmp", directory);
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), UTF_8);
+            try {
+                gson.toJson(result, writer);
+            } finally {
+                writer.close();
+            }
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                throw new IOException("Unable to write " + file.getAbsolutePath());
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Deletes the expired entries.
+     */
+    public void evict() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(SUFFIX) && isExpired(file)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /* --- Private methods --- */
+
+    private File getFile(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    private boolean isExpired(File file) {
+        return System.currentTimeMillis() - file.lastModified() > timeToLive;
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.Coordinates;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.api.model.ExclusionInfo;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Computes order independent fingerprints of project infos.
+ *
+ * <p>
+ *     A fingerprint is a SHA-1 over the module coordinates, parent coordinates, project token and the whole dependency
+ *     tree with SHA-1s. Dependencies are sorted by their own fingerprint, so it doesn't depend on the order in which
+ *     they were resolved. Subtrees shared between modules are fingerprinted once per fingerprinter.
+ * </p>
+ */
+public class ProjectFingerprinter {
+
+    /* --- Static members --- */
+
+    private static final String UTF_8 = "UTF-8";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char SEPARATOR = '\n';
+
+    /* --- Private Members --- */
+
+    private final Map<DependencyInfo, String> dependencyFingerprints = new IdentityHashMap<DependencyInfo, String>();
+
+    /* --- Public methods --- */
+
+    public String fingerprint(AgentProjectInfo projectInfo) {
+        StringBuilder sb = new StringBuilder();
+        appendCoordinates(sb, projectInfo.getCoordinates());
+        appendCoordinates(sb, projectInfo.getParentCoordinates());
+        sb.append(projectInfo.getProjectToken()).append(SEPARATOR);
+        appendSorted(sb, projectInfo.getDependencies());
+        return sha1(sb);
+    }
+
+    /**
+     * @return The fingerprint of the given values, in order.
+     */
+    public static String fingerprint(Collection<String> values) {
+        StringBuilder sb = new StringBuilder();
+        for (String value : values) {
+            sb.append(value).append(SEPARATOR);
+        }
+        return sha1(sb);
+    }
+
+    /* --- Private methods --- */
+
+    private String fingerprint(DependencyInfo dependency) {
+        String fingerprint = dependencyFingerprints.get(dependency);
+        if (fingerprint == null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(dependency.getGroupId()).append(SEPARATOR)
+                    .append(dependency.getArtifactId()).append(SEPARATOR)
+                    .append(dependency.getVersion()).append(SEPARATOR)
+                    .append(dependency.getClassifier()).append(SEPARATOR)
+                    .append(dependency.getType()).append(SEPARATOR)
+                    .append(dependency.getScope()).append(SEPARATOR)
+                    .append(dependency.getOptional()).append(SEPARATOR)
+                    .append(dependency.getSha1()).append(SEPARATOR)
+                    .append(dependency.getSystemPath()).append(SEPARATOR);
+            List<String> exclusions = new ArrayList<String>();
+            for (ExclusionInfo exclusion : dependency.getExclusions()) {
+                exclusions.add(exclusion.getGroupId() + ':' + exclusion.getArtifactId());
+            }
+            Collections.sort(exclusions);
+            sb.append(exclusions).append(SEPARATOR);
+            appendSorted(sb, dependency.getChildren());
+            fingerprint = sha1(sb);
+            // shared subtrees are fingerprinted once
+            dependencyFingerprints.put(dependency, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    private void appendSorted(StringBuilder sb, Collection<DependencyInfo> dependencies) {
+        List<String> fingerprints = new ArrayList<String>(dependencies.size());
+        for (DependencyInfo dependency : dependencies) {
+            fingerprints.add(fingerprint(dependency));
+        }
+        Collections.sort(fingerprints);
+        sb.append(fingerprints.size());
+        for (String fingerprint : fingerprints) {
+            sb.append(SEPARATOR).append(fingerprint);
+        }
+        sb.append(SEPARATOR);
+    }
+
+    private static void appendCoordinates(StringBuilder sb, Coordinates coordinates) {
+        if (coordinates != null) {
+            sb.append(coordinates.getGroupId()).append(':')
+                    .append(coordinates.getArtifactId()).append(':')
+                    .append(coordinates.getVersion());
+        }
+        sb.append(SEPARATOR);
+    }
+
+    private static String sha1(CharSequence content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(content.toString().getBytes(UTF_8));
+            char[] chars = new char[bytes.length * 2];
+            for (int i = 0; i < bytes.length; i++) {
+                chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+}
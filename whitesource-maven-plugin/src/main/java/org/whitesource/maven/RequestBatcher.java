@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.client.WssServiceException;
+
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits project infos into batches of bounded module count and estimated payload size, and sends them concurrently.
+ *
+ * <p>
+ *     The payload size of a module is estimated by serializing it to JSON without keeping the output.
+ *     A module larger than the size limit is sent alone in its batch, unless module splitting is allowed,
+ *     in which case its direct dependencies (with their subtrees) are spread over several partial copies of the module.
+ *     Splitting only suits requests that don't replace the server side inventory, like policy checks.
+ * </p>
+ */
+public class RequestBatcher {
+
+    /* --- Private Members --- */
+
+    private final int maxModules;
+    private final long maxBytes;
+    private final Gson gson = new Gson();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param maxModules Maximum number of modules in a batch, 0 for no limit.
+     * @param maxBytes   Maximum estimated payload size of a batch, 0 for no limit.
+     */
+    public RequestBatcher(int maxModules, long maxBytes) {
+        this.maxModules = maxModules;
+        this.maxBytes = maxBytes;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return True if batches are bounded at all.
+     */
+    public boolean isEnabled() {
+        return maxModules > 0 || maxBytes > 0;
+    }
+
+    /**
+     * @param projectInfos Modules to split.
+     * @param splitModules True to allow splitting a module too large for a single batch.
+     *
+     * @return The batches, in the order of the given modules. A single batch of all modules when batching is disabled.
+     */
+    public List<List<AgentProjectInfo>> createBatches(Collection<AgentProjectInfo> projectInfos, boolean splitModules) {
+        List<List<AgentProjectInfo>> batches = new ArrayList<List<AgentProjectInfo>>();
+        if (!isEnabled()) {
+            if (!projectInfos.isEmpty()) {
+                batches.add(new ArrayList<AgentProjectInfo>(projectInfos));
+            }
+            return batches;
+        }
+
+        List<AgentProjectInfo> batch = new ArrayList<AgentProjectInfo>();
+        long batchBytes = 0;
+        for (AgentProjectInfo projectInfo : projectInfos) {
+            // sizes only matter when batches are bounded by size, serializing a large module is costly
+            long size = maxBytes > 0 ? estimateSize(projectInfo) : 0;
+            List<AgentProjectInfo> parts;
+            List<Long> partSizes;
+            if (maxBytes > 0 && size > maxBytes && splitModules) {
+                parts = new ArrayList<AgentProjectInfo>();
+                partSizes = new ArrayList<Long>();
+                split(projectInfo, parts, partSizes);
+            } else {
+                parts = Collections.singletonList(projectInfo);
+                partSizes = Collections.singletonList(size);
+            }
+
+            for (int i = 0; i < parts.size(); i++) {
+                long partSize = partSizes.get(i);
+                boolean full = (maxModules > 0 && batch.size() >= maxModules) || (maxBytes > 0 && batchBytes + partSize > maxBytes);
+                if (full && !batch.isEmpty()) {
+                    batches.add(batch);
+                    batch = new ArrayList<AgentProjectInfo>();
+                    batchBytes = 0;
+                }
+                batch.add(parts.get(i));
+                batchBytes += partSize;
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Sends the batches with at most the given number of requests in flight.
+     *
+     * @return The result of each batch, in the order of the batches.
+     *
+     * @throws WssServiceException The failure of the first failing batch, in batch order.
+     */
+    public <R> List<R> send(List<List<AgentProjectInfo>> batches, int parallelism, final Sender<R> sender) throws WssServiceException {
+        List<R> results = new ArrayList<R>(batches.size());
+        if (parallelism <= 1 || batches.size() <= 1) {
+            for (List<AgentProjectInfo> batch : batches) {
+                results.add(sender.send(batch));
+            }
+            return results;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(parallelism, batches.size()), new SenderThreadFactory());
+        List<Future<R>> futures = new ArrayList<Future<R>>(batches.size());
+        try {
+            for (final List<AgentProjectInfo> batch : batches) {
+                futures.add(executorService.submit(new Callable<R>() {
+                    @Override
+                    public R call() throws WssServiceException {
+                        return sender.send(batch);
+                    }
+                }));
+            }
+
+            for (Future<R> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof WssServiceException) {
+                        throw (WssServiceException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new WssServiceException(cause.getMessage(), cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WssServiceException("Interrupted while sending requests", e);
+        } finally {
+            executorService.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * @return The size of the object serialized as JSON, in characters.
+     */
+    public long estimateSize(Object object) {
+        CountingWriter writer = new CountingWriter();
+        gson.toJson(object, writer);
+        return writer.count;
+    }
+
+    /* --- Private methods --- */
+
+    private void split(AgentProjectInfo projectInfo, List<AgentProjectInfo> parts, List<Long> partSizes) {
+        long headerSize = estimateSize(copyWithoutDependencies(projectInfo));
+        AgentProjectInfo part = null;
+        long partSize = 0;
+        for (DependencyInfo dependency : projectInfo.getDependencies()) {
+            long dependencySize = estimateSize(dependency) + 1;
+            if (part == null || partSize + dependencySize > maxBytes) {
+                if (part != null) {
+                    parts.add(part);
+                    partSizes.add(partSize);
+                }
+                part = copyWithoutDependencies(projectInfo);
+                partSize = headerSize;
+            }
+            part.getDependencies().add(dependency);
+            partSize += dependencySize;
+        }
+        if (part != null) {
+            parts.add(part);
+            partSizes.add(partSize);
+        }
+    }
+
+    private static AgentProjectInfo copyWithoutDependencies(AgentProjectInfo projectInfo) {
+        AgentProjectInfo copy = new AgentProjectInfo();
+        copy.setCoordinates(projectInfo.getCoordinates());
+        copy.setParentCoordinates(projectInfo.getParentCoordinates());
+        copy.setProjectToken(projectInfo.getProjectToken());
+        return copy;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Sends a single batch.
+     */
+    public interface Sender<R> {
+
+        R send(Collection<AgentProjectInfo> batch) throws WssServiceException;
+    }
+
+    /**
+     * Counts the characters written, discarding them.
+     */
+    private static class CountingWriter extends Writer {
+
+        private long count;
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class SenderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "whitesource-request-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
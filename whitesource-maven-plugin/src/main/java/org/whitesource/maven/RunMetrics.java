@@ -0,0 +1,378 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings and counters of a plugin run, per phase and per module.
+ *
+ * <p>
+ *     Phases are timed by {@link Timer}s, which also record the bytes allocated by the timing thread when the JVM
+ *     supports it. Counters are summed and peaks keep their largest value. Everything can be written as JSON,
+ *     or in the Prometheus text format for the node exporter textfile collector.
+ * </p>
+ *
+ * <p>
+ *     A disabled instance records nothing and hands out a shared no-op timer. This class is thread safe.
+ * </p>
+ */
+public class RunMetrics {
+
+    /* --- Static members --- */
+
+    public static final String RESOLUTION = "resolution";
+    public static final String CONVERSION = "conversion";
+    public static final String HASHING = "hashing";
+    public static final String SERIALIZATION = "serialization";
+    public static final String SERVICE = "service";
+    public static final String REPORT = "report";
+    public static final String MODULE = "module";
+
+    public static final String HASHED_FILES = "hashing.files";
+    public static final String HASHED_BYTES = "hashing.bytes";
+    public static final String REUSED_CHECKSUMS = "hashing.reused";
+    public static final String REQUESTS = "service.requests";
+    public static final String REQUEST_BYTES = "service.requestBytes";
+    /** JSON size of the projects sent by the stock client, which doesn't expose the request it writes. */
+    public static final String ESTIMATED_REQUEST_BYTES = "service.estimatedRequestBytes";
+    public static final String GRAPH_NODES = "graph.nodes";
+    public static final String ARTIFACTS = "artifacts";
+
+    private static final String PROMETHEUS_PREFIX = "whitesource_";
+    private static final String UTF_8 = "UTF-8";
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double BYTES_PER_MB = 1024 * 1024;
+
+    /* --- Private Members --- */
+
+    private final boolean enabled;
+    private final String goal;
+    private final long startTime = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final Timer noopTimer = new Timer(null, null);
+
+    private final Map<String, PhaseStats> phases = new TreeMap<String, PhaseStats>();
+    private final Map<String, Long> counters = new TreeMap<String, Long>();
+    private final Map<String, Long> peaks = new TreeMap<String, Long>();
+    private final Map<String, Map<String, Long>> modules = new TreeMap<String, Map<String, Long>>();
+
+    /* --- Constructors --- */
+
+    public RunMetrics(String goal, boolean enabled) {
+        this.goal = goal;
+        this.enabled = enabled;
+    }
+
+    /* --- Public methods --- */
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Timer start(String phase) {
+        return start(phase, null);
+    }
+
+    /**
+     * @param module Module the phase is done for, null if none.
+     */
+    public Timer start(String phase, String module) {
+        return enabled ? new Timer(phase, module) : noopTimer;
+    }
+
+    public void add(String counter, long delta) {
+        if (enabled) {
+            synchronized (this) {
+                Long value = counters.get(counter);
+                counters.put(counter, value == null ? delta : value + delta);
+            }
+        }
+    }
+
+    public void add(String module, String counter, long delta) {
+        if (enabled) {
+            synchronized (this) {
+                addModuleValue(module, counter, delta);
+            }
+        }
+    }
+
+    /**
+     * Keeps the largest of the values reported for the gauge.
+     */
+    public void peak(String gauge, long value) {
+        if (enabled) {
+            synchronized (this) {
+                Long peak = peaks.get(gauge);
+                if (peak == null || value > peak) {
+                    peaks.put(gauge, value);
+                }
+            }
+        }
+    }
+
+    public void writeJson(File file) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+        synchronized (this) {
+            json.put("goal", goal);
+            json.put("startTime", startTime);
+            json.put("durationMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+            Map<String, Object> phasesJson = new LinkedHashMap<String, Object>();
+            for (Map.Entry<String, PhaseStats> entry : phases.entrySet()) {
+                PhaseStats stats = entry.getValue();
+                Map<String, Object> phaseJson = new LinkedHashMap<String, Object>();
+                phaseJson.put("count", stats.count);
+                phaseJson.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(stats.totalNanos));
+                phaseJson.put("maxMillis", TimeUnit.NANOSECONDS.toMillis(stats.maxNanos));
+                if (stats.allocatedBytes >= 0) {
+                    phaseJson.put("allocatedBytes", stats.allocatedBytes);
+                }
+                phasesJson.put(entry.getKey(), phaseJson);
+            }
+            json.put("phases", phasesJson);
+            json.put("counters", new LinkedHashMap<String, Long>(counters));
+            json.put("peaks", new LinkedHashMap<String, Long>(peaks));
+
+            Double hashingThroughput = getHashingThroughput();
+            if (hashingThroughput != null) {
+                json.put("hashingMegabytesPerSecond", hashingThroughput);
+            }
+            json.put("modules", new LinkedHashMap<String, Map<String, Long>>(modules));
+        }
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        write(file, gson.toJson(json));
+    }
+
+    public void writePrometheus(File file) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String goalLabel = "goal=\"" + goal + "\"";
+        synchronized (this) {
+            appendType(sb, "run_duration_seconds", "gauge");
+            appendSample(sb, "run_duration_seconds", goalLabel, (System.nanoTime() - startNanos) / NANOS_PER_SECOND);
+
+            appendType(sb, "phase_seconds_total", "counter");
+            for (Map.Entry<String, PhaseStats> entry : phases.entrySet()) {
+                appendSample(sb, "phase_seconds_total", goalLabel + ",phase=\"" + entry.getKey() + "\"",
+                        entry.getValue().totalNanos / NANOS_PER_SECOND);
+            }
+            appendType(sb, "phase_count_total", "counter");
+            for (Map.Entry<String, PhaseStats> entry : phases.entrySet()) {
+                appendSample(sb, "phase_count_total", goalLabel + ",phase=\"" + entry.getKey() + "\"", entry.getValue().count);
+            }
+            appendType(sb, "phase_allocated_bytes_total", "counter");
+            for (Map.Entry<String, PhaseStats> entry : phases.entrySet()) {
+                if (entry.getValue().allocatedBytes >= 0) {
+                    appendSample(sb, "phase_allocated_bytes_total", goalLabel + ",phase=\"" + entry.getKey() + "\"",
+                            entry.getValue().allocatedBytes);
+                }
+            }
+
+            for (Map.Entry<String, Long> entry : counters.entrySet()) {
+                String name = toMetricName(entry.getKey()) + "_total";
+                appendType(sb, name, "counter");
+                appendSample(sb, name, goalLabel, entry.getValue());
+            }
+            for (Map.Entry<String, Long> entry : peaks.entrySet()) {
+                String name = toMetricName(entry.getKey()) + "_peak";
+                appendType(sb, name, "gauge");
+                appendSample(sb, name, goalLabel, entry.getValue());
+            }
+
+            Double hashingThroughput = getHashingThroughput();
+            if (hashingThroughput != null) {
+                appendType(sb, "hashing_megabytes_per_second", "gauge");
+                appendSample(sb, "hashing_megabytes_per_second", goalLabel, hashingThroughput);
+            }
+        }
+        write(file, sb.toString());
+    }
+
+    /* --- Private methods --- */
+
+    private synchronized void record(String phase, String module, long nanos, long allocatedBytes) {
+        PhaseStats stats = phases.get(phase);
+        if (stats == null) {
+            stats = new PhaseStats();
+            phases.put(phase, stats);
+        }
+        stats.count++;
+        stats.totalNanos += nanos;
+        stats.maxNanos = Math.max(stats.maxNanos, nanos);
+        if (allocatedBytes >= 0) {
+            stats.allocatedBytes = Math.max(0, stats.allocatedBytes) + allocatedBytes;
+        }
+
+        if (module != null) {
+            addModuleValue(module, phase + ".millis", TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    private void addModuleValue(String module, String name, long delta) {
+        Map<String, Long> values = modules.get(module);
+        if (values == null) {
+            values = new TreeMap<String, Long>();
+            modules.put(module, values);
+        }
+        Long value = values.get(name);
+        values.put(name, value == null ? delta : value + delta);
+    }
+
+    private Double getHashingThroughput() {
+        PhaseStats hashing = phases.get(HASHING);
+        Long bytes = counters.get(HASHED_BYTES);
+        if (hashing == null || bytes == null || hashing.totalNanos == 0) {
+            return null;
+        }
+        // modules hashed concurrently add up their times, making this a lower bound
+        return bytes / BYTES_PER_MB / (hashing.totalNanos / NANOS_PER_SECOND);
+    }
+
+    private static void appendType(StringBuilder sb, String name, String type) {
+        sb.append("# TYPE ").append(PROMETHEUS_PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendSample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(PROMETHEUS_PREFIX).append(name).append('{').append(labels).append("} ")
+                .append(String.format(Locale.ROOT, "%.6f", value)).append('\n');
+    }
+
+    private static void appendSample(StringBuilder sb, String name, String labels, long value) {
+        sb.append(PROMETHEUS_PREFIX).append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String toMetricName(String name) {
+        StringBuilder sb = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                sb.append('_').append(Character.toLowerCase(c));
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                sb.append(c);
+            } else {
+                sb.append('_');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes through a temporary file, so that scrapers never read a partial file.
+     */
+    private static void write(File file, String content) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory.getAbsolutePath());
+        }
+        File tmp = new File(directory, file.getName() + ".tmp");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), UTF_8);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+            tmp.delete();
+            throw new IOException("Unable to write " + file.getAbsolutePath());
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Times a phase on the thread that started it.
+     */
+    public class Timer {
+
+        private final String phase;
+        private final String module;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+
+        private Timer(String phase, String module) {
+            this.phase = phase;
+            this.module = module;
+            this.startNanos = phase == null ? 0 : System.nanoTime();
+            this.startAllocatedBytes = phase == null ? -1 : AllocationCounter.getAllocatedBytes();
+        }
+
+        public void stop() {
+            if (phase != null) {
+                long allocatedBytes = AllocationCounter.getAllocatedBytes();
+                record(phase, module, System.nanoTime() - startNanos,
+                        allocatedBytes < 0 || startAllocatedBytes < 0 ? -1 : allocatedBytes - startAllocatedBytes);
+            }
+        }
+    }
+
+    private static class PhaseStats {
+
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long allocatedBytes = -1;
+    }
+
+    /**
+     * Reads the bytes allocated by the current thread, through the HotSpot extension of {@link ThreadMXBean} if available.
+     */
+    private static class AllocationCounter {
+
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+        private static final Method GET_THREAD_ALLOCATED_BYTES = findMethod();
+
+        static long getAllocatedBytes() {
+            if (GET_THREAD_ALLOCATED_BYTES == null) {
+                return -1;
+            }
+            try {
+                return (Long) GET_THREAD_ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+
+        private static Method findMethod() {
+            try {
+                Class<?> hotspotThreads = Class.forName("com.sun.management.ThreadMXBean");
+                if (!hotspotThreads.isInstance(THREADS)) {
+                    return null;
+                }
+                Method supported = hotspotThreads.getMethod("isThreadAllocatedMemorySupported");
+                Method enabled = hotspotThreads.getMethod("isThreadAllocatedMemoryEnabled");
+                if (!(Boolean) supported.invoke(THREADS) || !(Boolean) enabled.invoke(THREADS)) {
+                    return null;
+                }
+                return hotspotThreads.getMethod("getThreadAllocatedBytes", long.class);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.plugin.logging.Log;
+import org.whitesource.agent.client.WssServiceException;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+/**
+ * Calls WhiteSource, retrying transient failures with jittered exponential backoff.
+ *
+ * <p>
+ *     Failures are transient when the connection failed or timed out, or the server answered 429, 502, 503 or 504.
+ *     Statuses are only known from {@link ServiceResponseException}, other failures the server answered are never
+ *     retried. A Retry-After hint from the server replaces the computed delay. Retries of a call stop at its deadline,
+ *     whatever the number of attempts left.
+ * </p>
+ *
+ * <p>
+ *     After a number of consecutive failed calls the circuit opens, and every later call fails immediately
+ *     instead of waiting for an endpoint known to be broken. Instances are thread safe and kept by
+ *     {@link SessionServices}, so that the calls of all the goals of a session share the circuit.
+ * </p>
+ */
+public class ServiceCallRetrier {
+
+    /* --- Static members --- */
+
+    private static final int[] TRANSIENT_STATUSES = {429, 502, 503, 504};
+
+    /* --- Private Members --- */
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long deadlineMillis;
+    private final int circuitBreakerThreshold;
+    private final Log log;
+    private final Random random = new Random();
+
+    private int consecutiveFailures;
+    private boolean circuitOpen;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param maxRetries              Retries of a call after its first attempt, 0 to never retry.
+     * @param baseDelayMillis         Upper bound of the delay before the first retry, doubled on each retry.
+     * @param maxDelayMillis          Upper bound of any delay.
+     * @param deadlineMillis          Maximum time spent on a call, retries included.
+     * @param circuitBreakerThreshold Consecutive failed calls opening the circuit, 0 to never open it.
+     */
+    public ServiceCallRetrier(int maxRetries, long baseDelayMillis, long maxDelayMillis, long deadlineMillis,
+                              int circuitBreakerThreshold, Log log) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+        this.deadlineMillis = deadlineMillis;
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+        this.log = log;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @param name Name of the call, for logging.
+     */
+    public <R> R call(String name, Call<R> call) throws WssServiceException {
+        synchronized (this) {
+            if (circuitOpen) {
+                throw new WssServiceException("Not calling " + name + ", WhiteSource failed " + consecutiveFailures
+                        + " consecutive calls in this run");
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + deadlineMillis;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                R result = call.call();
+                synchronized (this) {
+                    consecutiveFailures = 0;
+                }
+                return result;
+            } catch (WssServiceException e) {
+                long delay = attempt < maxRetries && isTransient(e) ? getDelay(e, attempt) : -1;
+                if (delay < 0 || System.currentTimeMillis() + delay > deadline) {
+                    recordFailure();
+                    throw e;
+                }
+
+                log.warn(name + " failed (" + e.getMessage() + "), retrying in " + delay + " ms");
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new WssServiceException("Interrupted while waiting to retry " + name, e);
+                }
+            }
+        }
+    }
+
+    public synchronized boolean isCircuitOpen() {
+        return circuitOpen;
+    }
+
+    /* --- Private methods --- */
+
+    private synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (circuitBreakerThreshold > 0 && consecutiveFailures >= circuitBreakerThreshold && !circuitOpen) {
+            circuitOpen = true;
+            log.warn("WhiteSource failed " + consecutiveFailures + " consecutive calls, failing fast from now on");
+        }
+    }
+
+    private long getDelay(WssServiceException e, int attempt) {
+        if (e instanceof ServiceResponseException && ((ServiceResponseException) e).getRetryAfterMillis() >= 0) {
+            return ((ServiceResponseException) e).getRetryAfterMillis();
+        }
+
+        // full jitter, spreading the retries of the whole fleet over the backoff window
+        long window = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 30));
+        synchronized (random) {
+            return (long) (random.nextDouble() * window);
+        }
+    }
+
+    private static boolean isTransient(WssServiceException e) {
+        if (e instanceof ServiceResponseException) {
+            return isTransientStatus(((ServiceResponseException) e).getStatus());
+        }
+
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnknownHostException || cause instanceof SSLHandshakeException) {
+                // a wrong URL or certificate won't fix itself
+                return false;
+            }
+            if (cause instanceof InterruptedIOException && Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        // the stock client reports the status in its message only, which may contain any number
+        return false;
+    }
+
+    private static boolean isTransientStatus(int status) {
+        for (int transientStatus : TRANSIENT_STATUSES) {
+            if (status == transientStatus) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * A single attempt of a call.
+     */
+    public interface Call<R> {
+
+        R call() throws WssServiceException;
+    }
+}
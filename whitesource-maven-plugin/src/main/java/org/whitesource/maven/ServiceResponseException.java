@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.client.WssServiceException;
+
+/**
+ * Thrown when WhiteSource answers with an unexpected HTTP status.
+ */
+public class ServiceResponseException extends WssServiceException {
+
+    /* --- Private Members --- */
+
+    private final int status;
+    private final long retryAfterMillis;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param retryAfterMillis Delay the server asked to wait before retrying, -1 if none.
+     */
+    public ServiceResponseException(String message, int status, long retryAfterMillis) {
+        super(message);
+        this.status = status;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /* --- Getters --- */
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
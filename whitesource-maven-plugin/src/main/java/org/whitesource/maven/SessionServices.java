@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.maven.utils.proxy.ProxySettings;
+import org.whitesource.maven.utils.proxy.ProxySettingsProvider;
+import org.whitesource.maven.utils.proxy.ProxySettingsProviderFactory;
+
+import java.util.*;
+
+/**
+ * Services and proxy settings shared by all the executions of the plugin in a Maven session.
+ *
+ * <p>
+ *     Proxy settings are resolved once per service URL, and calls to the same service share a retrier. Services are shared only when
+ *     {@link WhitesourceLifecycleParticipant} takes part in the session, as it is the one shutting them down
+ *     once the session is over; otherwise each goal creates and shuts down its own service.
+ * </p>
+ *
+ * <p>
+ *     Sessions are kept weakly, so the holders of sessions nobody closed don't outlive them.
+ * </p>
+ */
+public class SessionServices {
+
+    /* --- Static members --- */
+
+    private static final Map<MavenExecutionRequest, SessionServices> SESSIONS = new WeakHashMap<MavenExecutionRequest, SessionServices>();
+
+    /* --- Private Members --- */
+
+    private final Map<String, ProxySettings> proxySettings = new HashMap<String, ProxySettings>();
+    private final Map<String, WhitesourceService> services = new HashMap<String, WhitesourceService>();
+    private final Map<String, ServiceCallRetrier> retriers = new HashMap<String, ServiceCallRetrier>();
+    private boolean closedAtSessionEnd;
+    private boolean closed;
+
+    /* --- Static methods --- */
+
+    /**
+     * @return The holder of the given session, created on first use.
+     */
+    public static SessionServices get(MavenSession session) {
+        synchronized (SESSIONS) {
+            // sessions of parallel builds are cloned per project, but share the request
+            SessionServices sessionServices = SESSIONS.get(session.getRequest());
+            if (sessionServices == null) {
+                sessionServices = new SessionServices();
+                SESSIONS.put(session.getRequest(), sessionServices);
+            }
+            return sessionServices;
+        }
+    }
+
+    /**
+     * Shuts down the services of the given session.
+     */
+    public static void close(MavenSession session) {
+        SessionServices sessionServices;
+        synchronized (SESSIONS) {
+            sessionServices = SESSIONS.remove(session.getRequest());
+        }
+        if (sessionServices != null) {
+            sessionServices.close();
+        }
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return The proxy to connect to the given URL through, null for a direct connection.
+     */
+    public synchronized ProxySettings getProxySettings(String serviceUrl, MavenSession session) {
+        if (!proxySettings.containsKey(serviceUrl)) {
+            ProxySettingsProvider provider = ProxySettingsProviderFactory.getProxySettingsProviderForUrl(serviceUrl, session);
+            proxySettings.put(serviceUrl, provider.isProxyConfigured() ? provider.getProxySettings() : null);
+        }
+        return proxySettings.get(serviceUrl);
+    }
+
+    /**
+     * @param key     Identifies the configuration of the service.
+     * @param factory Creates the service if none was created yet for the key.
+     *
+     * @return The shared service, null if services can't be shared in this session.
+     */
+    public synchronized WhitesourceService getService(String key, ServiceFactory factory) {
+        if (!closedAtSessionEnd || closed) {
+            return null;
+        }
+        WhitesourceService service = services.get(key);
+        if (service == null) {
+            service = factory.newService();
+            services.put(key, service);
+        }
+        return service;
+    }
+
+    /**
+     * Unlike services, retriers hold no connections and are shared whether or not the session is closed at its end.
+     *
+     * @param key     Identifies the service URL and the retry settings.
+     * @param retrier Kept for the key if none was kept yet.
+     *
+     * @return The retrier shared by the calls of the session.
+     */
+    public synchronized ServiceCallRetrier getRetrier(String key, ServiceCallRetrier retrier) {
+        ServiceCallRetrier sharedRetrier = retriers.get(key);
+        if (sharedRetrier == null) {
+            sharedRetrier = retrier;
+            retriers.put(key, sharedRetrier);
+        }
+        return sharedRetrier;
+    }
+
+    /**
+     * Marks the session as one that will be closed at its end, allowing services to be shared.
+     */
+    public synchronized void setClosedAtSessionEnd(boolean closedAtSessionEnd) {
+        this.closedAtSessionEnd = closedAtSessionEnd;
+    }
+
+    /**
+     * @return True if the session is closed at its end, see {@link WhitesourceLifecycleParticipant}.
+     */
+    public synchronized boolean isClosedAtSessionEnd() {
+        return closedAtSessionEnd;
+    }
+
+    /* --- Private methods --- */
+
+    private synchronized void close() {
+        closed = true;
+        for (WhitesourceService service : services.values()) {
+            service.shutdown();
+        }
+        services.clear();
+    }
+
+    /* --- Nested classes --- */
+
+    public interface ServiceFactory {
+
+        WhitesourceService newService();
+    }
+}
@@ -0,0 +1,544 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.apache.commons.lang.StringUtils;
+import org.whitesource.agent.api.APIConstants;
+import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
+import org.whitesource.agent.api.dispatch.ResultEnvelope;
+import org.whitesource.agent.api.dispatch.UpdateInventoryResult;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.client.WssServiceException;
+import org.whitesource.maven.utils.proxy.ProxySettings;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.*;
+import java.net.*;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends requests to WhiteSource without building them in memory.
+ *
+ * <p>
+ *     Requests carry the same form fields as the ones sent by {@link org.whitesource.agent.client.WhitesourceService}.
+ *     The project infos are serialized by Gson straight into a chunked HTTP body, URL encoding them on the fly,
+ *     so neither the JSON nor the encoded form exist as a whole in memory.
+ * </p>
+ *
+ * <p>
+ *     When given {@link RunMetrics}, each request written is counted along with the bytes of its body, and the time
+ *     spent serializing and writing the body is recorded as {@link RunMetrics#SERIALIZATION}.
+ * </p>
+ *
+ * <p>
+ *     Proxy credentials are sent up front with each request for http URLs, and with the CONNECT request of the tunnel
+ *     for https URLs, see {@link TunnelingSocketFactory}. They never leave the connections of this client.
+ * </p>
+ */
+public class StreamingServiceClient {
+
+    /* --- Static members --- */
+
+    private static final String UPDATE = "UPDATE";
+    private static final String CHECK_POLICY_COMPLIANCE = "CHECK_POLICY_COMPLIANCE";
+
+    private static final String UTF_8 = "UTF-8";
+    private static final int CONNECT_TIMEOUT = 60 * 1000;
+    private static final int READ_TIMEOUT = 30 * 60 * 1000;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final String RETRY_AFTER = "Retry-After";
+
+    /* --- Private Members --- */
+
+    private final String serviceUrl;
+    private final ProxySettings proxySettings;
+    private final String proxyAuthorization;
+    private final TunnelingSocketFactory tunnelingSocketFactory;
+    private final Gson gson = new Gson();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param serviceUrl    WhiteSource agent service URL.
+     * @param proxySettings Proxy to connect through, null for a direct connection.
+     */
+    public StreamingServiceClient(String serviceUrl, ProxySettings proxySettings) {
+        this.serviceUrl = serviceUrl;
+        this.proxySettings = proxySettings;
+        if (proxySettings != null && StringUtils.isNotBlank(proxySettings.getUsername())) {
+            String credentials = proxySettings.getUsername() + ':' + StringUtils.defaultString(proxySettings.getPassword());
+            try {
+                proxyAuthorization = "Basic " + base64(credentials.getBytes(UTF_8));
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            tunnelingSocketFactory = new TunnelingSocketFactory(proxySettings.getHostname(), proxySettings.getPort(),
+                    proxyAuthorization, HttpsURLConnection.getDefaultSSLSocketFactory());
+        } else {
+            proxyAuthorization = null;
+            tunnelingSocketFactory = null;
+        }
+    }
+
+    /* --- Public methods --- */
+
+    public UpdateInventoryResult update(String orgToken, String requesterEmail, String product, String productVersion,
+                                        Collection<AgentProjectInfo> projectInfos) throws WssServiceException {
+        return update(orgToken, requesterEmail, product, productVersion, projectInfos, null);
+    }
+
+    /**
+     * @param metrics Records the request and the size of its body, null to record nothing.
+     */
+    public UpdateInventoryResult update(String orgToken, String requesterEmail, String product, String productVersion,
+                                        Collection<AgentProjectInfo> projectInfos, RunMetrics metrics) throws WssServiceException {
+        Map<String, String> parameters = createParameters(UPDATE, orgToken, product, productVersion);
+        if (StringUtils.isNotBlank(requesterEmail)) {
+            parameters.put(APIConstants.PARAM_REQUESTER_EMAIL, requesterEmail);
+        }
+        return send(parameters, projectInfos, UpdateInventoryResult.class, metrics);
+    }
+
+    public CheckPolicyComplianceResult checkPolicyCompliance(String orgToken, String product, String productVersion,
+                                                             Collection<AgentProjectInfo> projectInfos,
+                                                             boolean forceCheckAllDependencies) throws WssServiceException {
+        return checkPolicyCompliance(orgToken, product, productVersion, projectInfos, forceCheckAllDependencies, null);
+    }
+
+    /**
+     * @param metrics Records the request and the size of its body, null to record nothing.
+     */
+    public CheckPolicyComplianceResult checkPolicyCompliance(String orgToken, String product, String productVersion,
+                                                             Collection<AgentProjectInfo> projectInfos,
+                                                             boolean forceCheckAllDependencies, RunMetrics metrics)
+            throws WssServiceException {
+        Map<String, String> parameters = createParameters(CHECK_POLICY_COMPLIANCE, orgToken, product, productVersion);
+        parameters.put(APIConstants.PARAM_FORCE_CHECK_ALL_DEPENDENCIES, String.valueOf(forceCheckAllDependencies));
+        return send(parameters, projectInfos, CheckPolicyComplianceResult.class, metrics);
+    }
+
+    /**
+     * Opens a connection to the service, resolving its host, going through the proxy and negotiating TLS,
+     * then leaves it in the JVM keep-alive cache for the next request.
+     *
+     * @return The HTTP status the service answered with, whatever it is.
+     *
+     * @throws IOException If the service can't be reached.
+     */
+    public int warmUp() throws IOException {
+        HttpURLConnection connection = openConnection("HEAD");
+        connection.setReadTimeout(CONNECT_TIMEOUT);
+        int status = connection.getResponseCode();
+        InputStream response = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream();
+        if (response != null) {
+            response.close();
+        }
+        return status;
+    }
+
+    /* --- Private methods --- */
+
+    private Map<String, String> createParameters(String requestType, String orgToken, String product, String productVersion) {
+        Map<String, String> parameters = new LinkedHashMap<String, String>();
+        parameters.put(APIConstants.PARAM_REQUEST_TYPE, requestType);
+        parameters.put(APIConstants.PARAM_AGENT, Constants.AGENT_TYPE);
+        parameters.put(APIConstants.PARAM_AGENT_VERSION, Constants.AGENT_VERSION);
+        parameters.put(APIConstants.PARAM_TOKEN, orgToken);
+        parameters.put(APIConstants.PARAM_PRODUCT, product);
+        parameters.put(APIConstants.PARAM_PRODUCT_VERSION, productVersion);
+        parameters.put(APIConstants.PARAM_TIME_STAMP, String.valueOf(System.currentTimeMillis()));
+        return parameters;
+    }
+
+    private <R> R send(Map<String, String> parameters, Collection<AgentProjectInfo> projectInfos, Class<R> resultType,
+                       RunMetrics metrics) throws WssServiceException {
+        HttpURLConnection connection = null;
+        boolean completed = false;
+        try {
+            connection = openConnection("POST");
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(CHUNK_SIZE);
+            CountingOutputStream body = new CountingOutputStream(connection.getOutputStream());
+            FormEncodingWriter writer = new FormEncodingWriter(new BufferedOutputStream(body, CHUNK_SIZE));
+            RunMetrics.Timer timer = metrics == null ? null : metrics.start(RunMetrics.SERIALIZATION);
+            try {
+                for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+                    if (parameter.getValue() != null) {
+                        writer.write(parameter.getKey());
+                        writer.writeSeparator('=');
+                        writer.write(parameter.getValue());
+                        writer.writeSeparator('&');
+                    }
+                }
+                writer.write(APIConstants.PARAM_DIFF);
+                writer.writeSeparator('=');
+                gson.toJson(projectInfos, writer);
+            } finally {
+                writer.close();
+                if (timer != null) {
+                    timer.stop();
+                }
+            }
+            if (metrics != null) {
+                metrics.add(RunMetrics.REQUESTS, 1);
+                metrics.add(RunMetrics.REQUEST_BYTES, body.count);
+            }
+
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new ServiceResponseException("Unexpected response status " + status + " " + connection.getResponseMessage(),
+                        status, getRetryAfterMillis(connection));
+            }
+
+            Reader reader = new InputStreamReader(connection.getInputStream(), UTF_8);
+            ResultEnvelope envelope;
+            try {
+                envelope = gson.fromJson(reader, ResultEnvelope.class);
+            } finally {
+                reader.close();
+            }
+            if (envelope == null) {
+                throw new WssServiceException("Empty response from service");
+            }
+            // the response was read to its end, the connection can be kept alive for the next request
+            completed = true;
+            if (envelope.getStatus() != ResultEnvelope.STATUS_SUCCESS) {
+                throw new WssServiceException(envelope.getMessage() + " " + envelope.getData());
+            }
+            return gson.fromJson(envelope.getData(), resultType);
+        } catch (IOException e) {
+            throw new WssServiceException(e.getMessage(), e);
+        } catch (JsonParseException e) {
+            throw new WssServiceException(e.getMessage(), e);
+        } finally {
+            if (connection != null && !completed) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private HttpURLConnection openConnection(String method) throws IOException {
+        URL url = new URL(serviceUrl);
+        HttpURLConnection connection;
+        if (proxySettings == null) {
+            connection = (HttpURLConnection) url.openConnection();
+        } else if (tunnelingSocketFactory != null && "https".equalsIgnoreCase(url.getProtocol())) {
+            // HttpURLConnection doesn't send request headers on the CONNECT request, the tunnel is opened by the socket
+            connection = (HttpURLConnection) url.openConnection(Proxy.NO_PROXY);
+            ((HttpsURLConnection) connection).setSSLSocketFactory(tunnelingSocketFactory);
+        } else {
+            Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(proxySettings.getHostname(), proxySettings.getPort()));
+            connection = (HttpURLConnection) url.openConnection(proxy);
+            if (proxyAuthorization != null) {
+                // a streamed body can't be sent again once the proxy asks for credentials, so they are sent up front
+                connection.setRequestProperty("Proxy-Authorization", proxyAuthorization);
+            }
+        }
+        connection.setRequestMethod(method);
+        connection.setUseCaches(false);
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=" + UTF_8);
+        connection.setRequestProperty("Accept", "application/json");
+        return connection;
+    }
+
+    /**
+     * @return The delay asked by the Retry-After header, either in seconds or as a date, -1 if none.
+     */
+    private static long getRetryAfterMillis(HttpURLConnection connection) {
+        String retryAfter = StringUtils.trimToEmpty(connection.getHeaderField(RETRY_AFTER));
+        if (retryAfter.length() == 0) {
+            return -1;
+        }
+        if (StringUtils.isNumeric(retryAfter)) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        long date = connection.getHeaderFieldDate(RETRY_AFTER, -1);
+        return date < 0 ? -1 : Math.max(0, date - System.currentTimeMillis());
+    }
+
+    private static String base64(byte[] bytes) {
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        StringBuilder sb = new StringBuilder((bytes.length + 2) / 3 * 4);
+        for (int i = 0; i < bytes.length; i += 3) {
+            int b = (bytes[i] & 0xFF) << 16;
+            if (i + 1 < bytes.length) b |= (bytes[i + 1] & 0xFF) << 8;
+            if (i + 2 < bytes.length) b |= bytes[i + 2] & 0xFF;
+            sb.append(alphabet.charAt((b >> 18) & 0x3F));
+            sb.append(alphabet.charAt((b >> 12) & 0x3F));
+            sb.append(i + 1 < bytes.length ? alphabet.charAt((b >> 6) & 0x3F) : '=');
+            sb.append(i + 2 < bytes.length ? alphabet.charAt(b & 0x3F) : '=');
+        }
+        return sb.toString();
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Opens the sockets of https connections through a tunnel of an authenticating proxy, sending the credentials
+     * with the CONNECT request. The proxy is reached by the socket itself, the connection is opened without proxy.
+     */
+    static class TunnelingSocketFactory extends SSLSocketFactory {
+
+        private final String proxyHostname;
+        private final int proxyPort;
+        private final String proxyAuthorization;
+        private final SSLSocketFactory sslSocketFactory;
+
+        TunnelingSocketFactory(String proxyHostname, int proxyPort, String proxyAuthorization, SSLSocketFactory sslSocketFactory) {
+            this.proxyHostname = proxyHostname;
+            this.proxyPort = proxyPort;
+            this.proxyAuthorization = proxyAuthorization;
+            this.sslSocketFactory = sslSocketFactory;
+        }
+
+        /**
+         * @return An unconnected socket, opening the tunnel to the endpoint it's connected to.
+         */
+        @Override
+        public Socket createSocket() {
+            return new TunnelSocket();
+        }
+
+        /**
+         * Layers TLS over a connected tunnel.
+         */
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            return sslSocketFactory.createSocket(socket, host, port, autoClose);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            Socket socket = createSocket();
+            socket.connect(InetSocketAddress.createUnresolved(host, port), CONNECT_TIMEOUT);
+            return createSocket(socket, host, port, true);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return createSocket(host.getHostName(), port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return createSocket(address.getHostName(), port);
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return sslSocketFactory.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return sslSocketFactory.getSupportedCipherSuites();
+        }
+
+        /**
+         * Connects to the proxy instead of the given endpoint, and asks the proxy for a tunnel to the endpoint.
+         */
+        private class TunnelSocket extends Socket {
+
+            @Override
+            public void connect(SocketAddress endpoint, int timeout) throws IOException {
+                InetSocketAddress target = (InetSocketAddress) endpoint;
+                super.connect(new InetSocketAddress(proxyHostname, proxyPort), timeout);
+
+                String host = target.getHostName();
+                String authority = (host.indexOf(':') >= 0 ? '[' + host + ']' : host) + ':' + target.getPort();
+                OutputStream out = getOutputStream();
+                out.write(("CONNECT " + authority + " HTTP/1.1\r\n"
+                        + "Host: " + authority + "\r\n"
+                        + "Proxy-Authorization: " + proxyAuthorization + "\r\n"
+                        + "\r\n").getBytes("US-ASCII"));
+                out.flush();
+
+                String statusLine = readResponseHead();
+                if (!statusLine.matches("HTTP/1\\.[01] 200\\b.*")) {
+                    close();
+                    throw new IOException("Unable to tunnel through proxy " + proxyHostname + ':' + proxyPort
+                            + " to " + authority + ", the proxy answered: " + statusLine);
+                }
+            }
+
+            /**
+             * Reads the response to the CONNECT request byte by byte, so that nothing of the tunnel is consumed.
+             *
+             * @return The status line of the response.
+             */
+            private String readResponseHead() throws IOException {
+                InputStream in = getInputStream();
+                StringBuilder head = new StringBuilder();
+                while (head.length() < 4 || !head.substring(head.length() - 4).equals("\r\n\r\n")) {
+                    int b = in.read();
+                    if (b == -1) {
+                        throw new EOFException("Proxy " + proxyHostname + ':' + proxyPort + " closed the connection");
+                    }
+                    head.append((char) b);
+                }
+                return head.substring(0, head.indexOf("\r\n"));
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes written to the connection.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+
+    /**
+     * Encodes characters as application/x-www-form-urlencoded UTF-8, the same way {@link java.net.URLEncoder} does.
+     */
+    static class FormEncodingWriter extends Writer {
+
+        private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+        private final OutputStream out;
+        private char highSurrogate;
+
+        FormEncodingWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                write(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                write(str.charAt(i));
+            }
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            char ch = (char) c;
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(ch)) {
+                    writeCodePoint(Character.toCodePoint(high, ch));
+                    return;
+                }
+                writeCodePoint('?');
+            }
+
+            if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9')
+                    || ch == '.' || ch == '-' || ch == '*' || ch == '_') {
+                out.write(ch);
+            } else if (ch == ' ') {
+                out.write('+');
+            } else if (Character.isHighSurrogate(ch)) {
+                highSurrogate = ch;
+            } else if (Character.isLowSurrogate(ch)) {
+                writeCodePoint('?');
+            } else {
+                writeCodePoint(ch);
+            }
+        }
+
+        /**
+         * Writes a character of the form syntax itself, such as '=' or '&amp;', without encoding it.
+         */
+        void writeSeparator(char separator) throws IOException {
+            flushSurrogate();
+            out.write(separator);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushSurrogate();
+            out.close();
+        }
+
+        private void flushSurrogate() throws IOException {
+            // an unpaired surrogate is replaced, as URLEncoder does
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                writeCodePoint('?');
+            }
+        }
+
+        private void writeCodePoint(int codePoint) throws IOException {
+            if (codePoint < 0x80) {
+                writeEscaped(codePoint);
+            } else if (codePoint < 0x800) {
+                writeEscaped(0xC0 | (codePoint >> 6));
+                writeEscaped(0x80 | (codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                writeEscaped(0xE0 | (codePoint >> 12));
+                writeEscaped(0x80 | ((codePoint >> 6) & 0x3F));
+                writeEscaped(0x80 | (codePoint & 0x3F));
+            } else {
+                writeEscaped(0xF0 | (codePoint >> 18));
+                writeEscaped(0x80 | ((codePoint >> 12) & 0x3F));
+                writeEscaped(0x80 | ((codePoint >> 6) & 0x3F));
+                writeEscaped(0x80 | (codePoint & 0x3F));
+            }
+        }
+
+        private void writeEscaped(int b) throws IOException {
+            out.write('%');
+            out.write(HEX[(b >> 4) & 0xF]);
+            out.write(HEX[b & 0xF]);
+        }
+    }
+}
@@ -25,9 +25,17 @@ import org.apache.maven.project.DependencyResolutionException;
 import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
 import org.whitesource.agent.api.dispatch.UpdateInventoryResult;
 import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.client.WhitesourceService;
 import org.whitesource.agent.client.WssServiceException;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Send updates of open source software usage information to White Source.
@@ -70,6 +78,48 @@ public class UpdateMojo extends AgentMojo {
     @Parameter( alias = "forceCheckAllDependencies", property = Constants.FORCE_CHECK_ALL_DEPENDENCIES, required = false, defaultValue = "false")
     private boolean forceCheckAllDependencies;
 
+    /**
+     * Optional. Set to true to send only the modules whose dependencies changed since the last successful update.
+     * Fingerprints of the modules sent are kept in the {@link AgentMojo#stateDirectory}.
+     */
+    @Parameter( alias = "skipUnchangedModules", property = Constants.SKIP_UNCHANGED_MODULES, required = false, defaultValue = "false")
+    private boolean skipUnchangedModules;
+
+    /**
+     * Optional. Set to true to send all modules, even if {@link UpdateMojo#skipUnchangedModules} is set.
+     */
+    @Parameter( alias = "forceFullUpdate", property = Constants.FORCE_FULL_UPDATE, required = false, defaultValue = "false")
+    private boolean forceFullUpdate;
+
+    /**
+     * Optional. Set to true to send each module as soon as its dependencies are resolved and hashed,
+     * while the next modules are still processed.
+     *
+     * Important: Ignored if {@link UpdateMojo#checkPolicies} or {@link AgentMojo#aggregateModules} are set to true,
+     * as both need all modules before sending anything.
+     */
+    @Parameter( alias = "pipelineModules", property = Constants.PIPELINE_MODULES, required = false, defaultValue = "false")
+    private boolean pipelineModules;
+
+    /**
+     * Optional. Set to true to send the update on a background thread and let the build go on.
+     * The update is joined at the end of the session, which needs the plugin declared with extensions set to true
+     * on Maven 3.2.1 or later.
+     *
+     * Important: Ignored if {@link UpdateMojo#pipelineModules} is in effect, or if the end of the session isn't
+     * handled, in which case the update is sent right away.
+     */
+    @Parameter( alias = "async", property = Constants.ASYNC, required = false, defaultValue = "false")
+    private boolean async;
+
+    /**
+     * Optional. Maximum number of seconds to wait for a background update once the build is over.
+     */
+    @Parameter( alias = "asyncTimeoutSeconds", property = Constants.ASYNC_TIMEOUT_SECONDS, required = false, defaultValue = "600")
+    private int asyncTimeoutSeconds;
+
+    private boolean sendingInBackground;
+
     /* --- Constructors --- */
 
     public UpdateMojo() {
@@ -87,17 +137,55 @@ public class UpdateMojo extends AgentMojo {
         // initialize
         init();
 
+        if (offline) {
+            writeOffline();
+            return;
+        }
+        warmUpConnection();
+
+        if (pipelineModules) {
+            if (!checkPolicies && !aggregateModules) {
+                if (async) {
+                    info("Background update is not supported with pipelined update, ignoring async");
+                }
+                sendUpdatePipelined();
+                return;
+            }
+            info("Pipelined update is not supported with policy checks or module aggregation, ignoring pipelineModules");
+        }
+
         // Collect OSS usage information
         Collection<AgentProjectInfo> projectInfos = extractProjectInfos();
 
         // send to white source
         if (projectInfos == null || projectInfos.isEmpty()) {
             info("No open source information found.");
+        } else if (async && SessionServices.get(session).isClosedAtSessionEnd()) {
+            sendUpdateInBackground(projectInfos);
         } else {
+            if (async) {
+                warn("Background update needs the plugin declared with extensions set to true on Maven 3.2.1 or later, sending the update now");
+            }
             sendUpdate(projectInfos);
         }
     }
 
+    @Override
+    protected void writeMetrics() {
+        // the background update owns the metrics once started and writes them when done
+        if (!sendingInBackground) {
+            super.writeMetrics();
+        }
+    }
+
+    @Override
+    protected void shutdownService() {
+        // the background update shuts its service down once done
+        if (!sendingInBackground) {
+            super.shutdownService();
+        }
+    }
+
     /* --- Private methods --- */
 
     protected void init() {
@@ -108,6 +196,8 @@ public class UpdateMojo extends AgentMojo {
                 Constants.FORCE_CHECK_ALL_DEPENDENCIES, Boolean.toString(forceCheckAllDependencies)));
         forceUpdate = Boolean.parseBoolean(session.getSystemProperties().getProperty(Constants.FORCE_UPDATE,
                 Boolean.toString(forceUpdate)));
+        forceFullUpdate = Boolean.parseBoolean(session.getSystemProperties().getProperty(Constants.FORCE_FULL_UPDATE,
+                Boolean.toString(forceFullUpdate)));
     }
 
     private void sendUpdate(Collection<AgentProjectInfo> projectInfos) throws MojoFailureException, MojoExecutionException {
@@ -115,8 +205,7 @@ public class UpdateMojo extends AgentMojo {
             UpdateInventoryResult updateResult;
             if (checkPolicies) {
                 info("Checking Policies");
-                CheckPolicyComplianceResult result = service.checkPolicyCompliance(
-                        orgToken, product, productVersion, projectInfos, forceCheckAllDependencies);
+                CheckPolicyComplianceResult result = sendCheckPoliciesRequest(projectInfos, forceCheckAllDependencies);
 
                 if (outputDirectory == null ||
                         (!outputDirectory.exists() && !outputDirectory.mkdirs())) {
@@ -132,8 +221,10 @@ public class UpdateMojo extends AgentMojo {
 
                 if (!hasRejections || forceUpdate) {
                     info(forceUpdate ? SENDING_FORCE_UPDATE : SENDING_UPDATE);
-                    updateResult = service.update(orgToken, requesterEmail, product, productVersion, projectInfos);
-                    logResult(updateResult);
+                    updateResult = update(projectInfos);
+                    if (updateResult != null) {
+                        logResult(updateResult);
+                    }
                 }
 
                 // check rejection last to support force update
@@ -143,14 +234,182 @@ public class UpdateMojo extends AgentMojo {
                 }
             } else {
                 info(SENDING_UPDATE);
-                updateResult = service.update(orgToken, requesterEmail, product, productVersion, projectInfos);
-                logResult(updateResult);
+                updateResult = update(projectInfos);
+                if (updateResult != null) {
+                    logResult(updateResult);
+                }
             }
         } catch (WssServiceException e) {
             throw new MojoExecutionException(Constants.ERROR_SERVICE_CONNECTION + e.getMessage(), e);
         }
     }
 
+    private void writeOffline() throws MojoExecutionException, DependencyResolutionException {
+        if (checkPolicies) {
+            warn("Policies are not checked in offline mode, upload a policy check request written by the checkPolicies goal instead");
+        }
+
+        Collection<AgentProjectInfo> projectInfos = extractProjectInfos();
+        if (projectInfos == null || projectInfos.isEmpty()) {
+            info("No open source information found.");
+        } else {
+            writeOfflineRequest(OfflineRequest.UPDATE, projectInfos, false);
+        }
+    }
+
+    /**
+     * Sends the update on a background thread, dependencies are resolved beforehand as resolution isn't thread safe.
+     */
+    private void sendUpdateInBackground(final Collection<AgentProjectInfo> projectInfos) {
+        info("Sending update in the background");
+
+        // the service may be shared with goals running meanwhile, the background update gets its own
+        initServiceSettings();
+        super.shutdownService();
+        final WhitesourceService backgroundService = streamingClient == null ? newService() : null;
+        service = backgroundService;
+        // written now with what the goal recorded, the background update records into the same metrics afterwards
+        writeMetrics();
+        sendingInBackground = true;
+        BackgroundUpdate.start(session, "WhiteSource update", new Callable<Void>() {
+            @Override
+            public Void call() throws MojoExecutionException, MojoFailureException {
+                try {
+                    sendUpdate(projectInfos);
+                    return null;
+                } finally {
+                    if (backgroundService != null) {
+                        backgroundService.shutdown();
+                    }
+                    UpdateMojo.super.writeMetrics();
+                }
+            }
+        }, TimeUnit.SECONDS.toMillis(asyncTimeoutSeconds), isFailOnError(), getLog());
+    }
+
+    /**
+     * Processes and sends the modules one by one as soon as each is complete, see {@link ModulePipeline}.
+     */
+    private void sendUpdatePipelined() throws MojoExecutionException, DependencyResolutionException {
+        final ModuleFingerprints fingerprints = openFingerprints();
+        final SkippedModules skipped = new SkippedModules();
+        final List<UpdateInventoryResult> results = new ArrayList<UpdateInventoryResult>();
+        Collection<AgentProjectInfo> projectInfos;
+        try {
+            projectInfos = extractProjectInfos(new ModulePipeline.Uploader() {
+                @Override
+                public void upload(AgentProjectInfo projectInfo) throws WssServiceException {
+                    UpdateInventoryResult result = update(Collections.singletonList(projectInfo), fingerprints, skipped);
+                    if (result != null) {
+                        results.add(result);
+                    }
+                }
+            });
+        } finally {
+            saveFingerprints(fingerprints);
+        }
+
+        if (projectInfos.isEmpty()) {
+            info("No open source information found.");
+        } else {
+            logSkippedModules(skipped, projectInfos.size());
+            if (!results.isEmpty()) {
+                logResult(mergeUpdateResults(results));
+            }
+        }
+    }
+
+    /**
+     * Sends the update, leaving out unchanged modules if requested.
+     *
+     * @return The update result, null if no module had to be sent.
+     */
+    private UpdateInventoryResult update(Collection<AgentProjectInfo> projectInfos) throws WssServiceException {
+        ModuleFingerprints fingerprints = openFingerprints();
+        SkippedModules skipped = new SkippedModules();
+        UpdateInventoryResult result;
+        try {
+            result = update(projectInfos, fingerprints, skipped);
+        } finally {
+            saveFingerprints(fingerprints);
+        }
+        logSkippedModules(skipped, projectInfos.size());
+        return result;
+    }
+
+    /**
+     * @param fingerprints Fingerprints of the modules last sent, null to send all modules.
+     * @param skipped      Counts the unchanged modules left out.
+     *
+     * @return The update result, null if no module had to be sent.
+     */
+    private UpdateInventoryResult update(Collection<AgentProjectInfo> projectInfos, ModuleFingerprints fingerprints,
+                                         SkippedModules skipped) throws WssServiceException {
+        if (fingerprints == null) {
+            return sendUpdateRequest(projectInfos);
+        }
+
+        List<AgentProjectInfo> changed = new ArrayList<AgentProjectInfo>();
+        List<String> changedFingerprints = new ArrayList<String>();
+        for (AgentProjectInfo projectInfo : projectInfos) {
+            String fingerprint = fingerprints.fingerprint(projectInfo);
+            if (!forceFullUpdate && fingerprints.isUnchanged(projectInfo, fingerprint)) {
+                debug("Skipping unchanged module " + projectInfo.getCoordinates());
+                // serializing the module only tells how much was saved, worth it when debugging only
+                skipped.add(getLog().isDebugEnabled() ? createRequestBatcher().estimateSize(projectInfo) : 0);
+            } else {
+                changed.add(projectInfo);
+                changedFingerprints.add(fingerprint);
+            }
+        }
+        if (changed.isEmpty()) {
+            return null;
+        }
+
+        UpdateInventoryResult result = sendUpdateRequest(changed);
+        for (int i = 0; i < changed.size(); i++) {
+            fingerprints.record(changed.get(i), changedFingerprints.get(i));
+        }
+        return result;
+    }
+
+    private ModuleFingerprints openFingerprints() {
+        if (!skipUnchangedModules) {
+            return null;
+        }
+
+        File file = new File(stateDirectory, Constants.MODULE_FINGERPRINTS_FILE);
+        try {
+            return new ModuleFingerprints(file, orgToken, product, productVersion);
+        } catch (IOException e) {
+            warn("Error reading module fingerprints from " + file.getAbsolutePath() + ", sending all modules", e);
+            return null;
+        }
+    }
+
+    private void saveFingerprints(ModuleFingerprints fingerprints) {
+        if (fingerprints != null) {
+            try {
+                fingerprints.save();
+            } catch (IOException e) {
+                warn("Error saving module fingerprints: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void logSkippedModules(SkippedModules skipped, int moduleCount) {
+        int modules = skipped.getModules();
+        if (modules > 0) {
+            info("Skipped " + modules + " unchanged modules");
+            if (getLog().isDebugEnabled()) {
+                debug("Avoided sending about " + skipped.getBytes() + " bytes");
+            }
+            if (modules == moduleCount) {
+                info("All modules are unchanged, no update sent");
+            }
+        }
+    }
+
     private void logResult(UpdateInventoryResult result) {
         info("");
         info("------------------------------------------------------------------------");
@@ -183,4 +442,28 @@ public class UpdateMojo extends AgentMojo {
         info("");
     }
 
+    /* --- Nested classes --- */
+
+    /**
+     * Counts the unchanged modules left out of one update, and their size when debugging.
+     * Modules of a pipelined update are sent from several threads.
+     */
+    private static class SkippedModules {
+
+        private int modules;
+        private long bytes;
+
+        synchronized void add(long moduleBytes) {
+            modules++;
+            bytes += moduleBytes;
+        }
+
+        synchronized int getModules() {
+            return modules;
+        }
+
+        synchronized long getBytes() {
+            return bytes;
+        }
+    }
 }
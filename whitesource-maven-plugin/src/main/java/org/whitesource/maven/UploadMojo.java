@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
+import org.whitesource.agent.api.dispatch.UpdateInventoryResult;
+import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.agent.client.WssServiceException;
+import org.whitesource.maven.utils.checksum.ChecksumCalculator;
+import org.whitesource.maven.utils.checksum.FileChannelChecksumCalculator;
+import org.whitesource.maven.utils.jfr.EventSpan;
+import org.whitesource.maven.utils.jfr.FlightRecorderEvents;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Send requests written by the update and checkPolicies goals in offline mode to WhiteSource.
+ *
+ * <p>
+ *     Files with identical content are sent once. Requests are sent concurrently,
+ *     each file is deleted once its request succeeded, so a failed upload can simply be run again.
+ * </p>
+ */
+@Mojo(name = "upload",
+        requiresProject = false,
+        aggregator = true )
+public class UploadMojo extends WhitesourceMojo {
+
+    /* --- Static members --- */
+
+    public static final String POLICY_VIOLATIONS_FOUND = "Some dependencies were rejected by the organization's policies";
+
+    /* --- Members --- */
+
+    /**
+     * Optional. Request files to send.
+     * If omitted, all request files found in {@link UploadMojo#requestDirectory} are sent.
+     */
+    @Parameter(alias = "requestFiles", property = Constants.REQUEST_FILES, required = false)
+    private File[] requestFiles;
+
+    /**
+     * Optional. Directory to look for request files in, the default request directory of the update and checkPolicies goals
+     * when run from the project directory.
+     */
+    @Parameter(alias = "requestDirectory", property = Constants.REQUEST_DIRECTORY, required = false, defaultValue = "${basedir}/target/whitesource/requests")
+    private File requestDirectory;
+
+    /**
+     * Optional. Number of requests sent concurrently.
+     */
+    @Parameter(alias = "uploadParallelism", property = Constants.UPLOAD_PARALLELISM, required = false, defaultValue = "2")
+    private int uploadParallelism;
+
+    /* --- Constructors --- */
+
+    public UploadMojo() {
+    }
+
+    /* --- Concrete implementation methods --- */
+
+    @Override
+    public void doExecute() throws MojoExecutionException, MojoFailureException {
+        List<File> files = findRequestFiles();
+        if (files.isEmpty()) {
+            info("No request files found. Skipping upload");
+            return;
+        }
+
+        // identical requests are sent once, their copies are deleted along with the file sent
+        Map<String, List<File>> filesByChecksum = new LinkedHashMap<String, List<File>>();
+        ChecksumCalculator calculator = new FileChannelChecksumCalculator();
+        for (File file : files) {
+            try {
+                String checksum = calculator.calculateSHA1(file);
+                List<File> copies = filesByChecksum.get(checksum);
+                if (copies == null) {
+                    copies = new ArrayList<File>(1);
+                    filesByChecksum.put(checksum, copies);
+                }
+                copies.add(file);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error reading request file " + file.getAbsolutePath(), e);
+            }
+        }
+        if (filesByChecksum.size() < files.size()) {
+            info("Skipping " + (files.size() - filesByChecksum.size()) + " duplicate request files");
+        }
+
+        try {
+            getService();
+        } catch (WssServiceException e) {
+            throw new MojoExecutionException(Constants.ERROR_SERVICE_CONNECTION + e.getMessage(), e);
+        }
+
+        info("Uploading " + filesByChecksum.size() + " requests");
+        List<List<File>> uploads = new ArrayList<List<File>>(filesByChecksum.values());
+        List<Future<Object>> futures = submit(uploads);
+
+        int failures = 0;
+        boolean hasRejections = false;
+        for (int i = 0; i < uploads.size(); i++) {
+            // each upload is handled on its own, so a failure doesn't keep accepted requests from being deleted
+            File file = uploads.get(i).get(0);
+            Object result;
+            try {
+                result = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while uploading requests", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                error("Error uploading " + file.getName() + ": " + cause.getMessage(), cause);
+                failures++;
+                continue;
+            }
+
+            if (result instanceof UpdateInventoryResult) {
+                UpdateInventoryResult updateResult = (UpdateInventoryResult) result;
+                info("Uploaded " + file.getName() + ", created " + updateResult.getCreatedProjects().size()
+                        + " and updated " + updateResult.getUpdatedProjects().size() + " projects of " + updateResult.getOrganization());
+            } else if (result instanceof CheckPolicyComplianceResult) {
+                boolean rejected = ((CheckPolicyComplianceResult) result).hasRejections();
+                info("Uploaded " + file.getName() + ", " + (rejected ? "some dependencies were rejected" : "all dependencies conform")
+                        + " with the organization's policies");
+                hasRejections |= rejected;
+            }
+            for (File copy : uploads.get(i)) {
+                if (!copy.delete()) {
+                    warn("Unable to delete uploaded request file " + copy.getAbsolutePath());
+                }
+            }
+        }
+
+        if (failures > 0) {
+            throw new MojoExecutionException(failures + " of " + uploads.size() + " requests failed to upload, run the upload goal again to retry");
+        }
+        if (hasRejections) {
+            throw new MojoExecutionException(POLICY_VIOLATIONS_FOUND);
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private List<File> findRequestFiles() {
+        List<File> files = new ArrayList<File>();
+        if (requestFiles != null && requestFiles.length > 0) {
+            for (File file : requestFiles) {
+                if (file.isFile()) {
+                    files.add(file);
+                } else {
+                    warn("Request file " + file.getAbsolutePath() + " not found");
+                }
+            }
+        } else if (requestDirectory != null && requestDirectory.isDirectory()) {
+            File[] found = requestDirectory.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.startsWith(OfflineRequest.FILE_PREFIX) && name.endsWith(OfflineRequest.FILE_SUFFIX);
+                }
+            });
+            if (found != null) {
+                files.addAll(Arrays.asList(found));
+                Collections.sort(files);
+            }
+        }
+        return files;
+    }
+
+    private List<Future<Object>> submit(List<List<File>> uploads) {
+        final int threads = Math.max(1, Math.min(uploadParallelism, uploads.size()));
+        ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "whitesource-upload-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        List<Future<Object>> futures = new ArrayList<Future<Object>>(uploads.size());
+        try {
+            for (List<File> copies : uploads) {
+                final File file = copies.get(0);
+                futures.add(executorService.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws IOException, WssServiceException {
+                        // streamed requests open their own connections
+                        WhitesourceService uploadService = threads > 1 && streamingClient == null ? newService() : service;
+                        try {
+                            return upload(uploadService, OfflineRequest.read(file));
+                        } finally {
+                            if (uploadService != service) {
+                                uploadService.shutdown();
+                            }
+                        }
+                    }
+                }));
+            }
+        } finally {
+            // lets submitted uploads complete
+            executorService.shutdown();
+        }
+        return futures;
+    }
+
+    private Object upload(final WhitesourceService service, final OfflineRequest request) throws WssServiceException {
+        if (!OfflineRequest.UPDATE.equals(request.getType()) && !OfflineRequest.CHECK_POLICY_COMPLIANCE.equals(request.getType())) {
+            throw new WssServiceException("Unknown request type " + request.getType());
+        }
+
+        EventSpan span = FlightRecorderEvents.startServiceCall(request.getType(), request.getProjects().size());
+        try {
+            Object result = retrier.call("Upload", new ServiceCallRetrier.Call<Object>() {
+                @Override
+                public Object call() throws WssServiceException {
+                    if (OfflineRequest.UPDATE.equals(request.getType())) {
+                        if (streamingClient != null) {
+                            return streamingClient.update(request.getOrgToken(), request.getRequesterEmail(), request.getProduct(),
+                                    request.getProductVersion(), request.getProjects());
+                        }
+                        return service.update(request.getOrgToken(), request.getRequesterEmail(), request.getProduct(),
+                                request.getProductVersion(), request.getProjects());
+                    }
+                    if (streamingClient != null) {
+                        return streamingClient.checkPolicyCompliance(request.getOrgToken(), request.getProduct(), request.getProductVersion(),
+                                request.getProjects(), request.isForceCheckAllDependencies());
+                    }
+                    return service.checkPolicyCompliance(request.getOrgToken(), request.getProduct(), request.getProductVersion(),
+                            request.getProjects(), request.isForceCheckAllDependencies());
+                }
+            });
+            span.setSuccess(true);
+            return result;
+        } finally {
+            span.end();
+        }
+    }
+
+}
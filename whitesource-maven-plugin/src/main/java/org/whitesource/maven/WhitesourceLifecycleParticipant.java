@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Joins the updates sent in the background by the update goal and shuts down the services shared
+ * by the goals of the session once the build is over.
+ *
+ * <p>
+ *     Only active when the plugin is declared with extensions set to true, on Maven 3.2.1 or later,
+ *     which added the end of session callback. Otherwise services aren't shared and updates aren't sent
+ *     in the background.
+ * </p>
+ */
+public class WhitesourceLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+
+    /* --- Static members --- */
+
+    private static final String AFTER_SESSION_END = "afterSessionEnd";
+
+    /* --- Public methods --- */
+
+    @Override
+    public void afterProjectsRead(MavenSession session) throws MavenExecutionException {
+        SessionServices.get(session).setClosedAtSessionEnd(isSessionEndSupported());
+    }
+
+    // not annotated with @Override as the method doesn't exist in Maven versions prior to 3.2.1
+    public void afterSessionEnd(MavenSession session) throws MavenExecutionException {
+        try {
+            BackgroundUpdate.joinAll(session);
+        } catch (MojoFailureException e) {
+            throw new MavenExecutionException(e.getMessage(), e);
+        } finally {
+            SessionServices.close(session);
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private static boolean isSessionEndSupported() {
+        try {
+            AbstractMavenLifecycleParticipant.class.getMethod(AFTER_SESSION_END, MavenSession.class);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -28,9 +28,10 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectDependenciesResolver;
 import org.whitesource.agent.client.ClientConstants;
 import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.agent.client.WssServiceException;
 import org.whitesource.maven.utils.proxy.ProxySettings;
-import org.whitesource.maven.utils.proxy.ProxySettingsProvider;
-import org.whitesource.maven.utils.proxy.ProxySettingsProviderFactory;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * Concrete implementation holding common functionality to all goals in this plugin.
@@ -71,8 +72,70 @@ public abstract class WhitesourceMojo extends AbstractMojo {
     @Parameter(alias = "wssUrl", property = ClientConstants.SERVICE_URL_KEYWORD, required = false, defaultValue = ClientConstants.DEFAULT_SERVICE_URL)
     protected String wssUrl;
 
+    /**
+     * Optional. Set to true to stream requests to WhiteSource instead of building them in memory.
+     * Useful for products whose requests take hundreds of megabytes.
+     */
+    @Parameter(alias = "useStreamingRequests", property = Constants.USE_STREAMING_REQUESTS, required = false, defaultValue = "false")
+    protected boolean useStreamingRequests;
+
+    /**
+     * Optional. Number of times a call to WhiteSource failing with a transient error is retried, 0 to never retry.
+     * Failed connections are transient, and so are 429, 502, 503 and 504 answers when {@link WhitesourceMojo#useStreamingRequests}
+     * is set to true, as the stock client doesn't report the status.
+     */
+    @Parameter(alias = "serviceRetries", property = Constants.SERVICE_RETRIES, required = false, defaultValue = "0")
+    protected int serviceRetries;
+
+    /**
+     * Optional. Upper bound in milliseconds of the random delay before the first retry, doubled on each retry.
+     */
+    @Parameter(alias = "serviceRetryDelayMillis", property = Constants.SERVICE_RETRY_DELAY_MILLIS, required = false, defaultValue = "2000")
+    protected long serviceRetryDelayMillis;
+
+    /**
+     * Optional. Maximum delay in milliseconds between retries.
+     */
+    @Parameter(alias = "serviceRetryMaxDelayMillis", property = Constants.SERVICE_RETRY_MAX_DELAY_MILLIS, required = false, defaultValue = "60000")
+    protected long serviceRetryMaxDelayMillis;
+
+    /**
+     * Optional. Maximum number of seconds spent on a call to WhiteSource, retries included.
+     */
+    @Parameter(alias = "serviceCallDeadlineSeconds", property = Constants.SERVICE_CALL_DEADLINE_SECONDS, required = false, defaultValue = "600")
+    protected int serviceCallDeadlineSeconds;
+
+    /**
+     * Optional. Number of consecutive failed calls after which calls to WhiteSource fail immediately for the rest of the run.
+     * Set to 0 to keep calling.
+     */
+    @Parameter(alias = "circuitBreakerThreshold", property = Constants.CIRCUIT_BREAKER_THRESHOLD, required = false, defaultValue = "0")
+    protected int circuitBreakerThreshold;
+
+    /**
+     * Optional. Set to true to open the connection to WhiteSource in the background while dependencies are resolved.
+     * Requests then fail fast if WhiteSource can't be reached.
+     */
+    @Parameter(alias = "warmUpConnection", property = Constants.WARM_UP_CONNECTION, required = false, defaultValue = "false")
+    protected boolean warmUpConnection;
+
+    /**
+     * Created on first use, see {@link WhitesourceMojo#getService()}.
+     */
     protected WhitesourceService service;
 
+    protected ServiceCallRetrier retrier;
+
+    private boolean sharedService;
+
+    private ConnectionWarmer connectionWarmer;
+
+    protected StreamingServiceClient streamingClient;
+
+    protected String serviceUrl;
+
+    protected ProxySettings proxySettings;
+
     /* --- Abstract methods --- */
 
     public abstract void doExecute() throws MojoExecutionException, MojoFailureException, DependencyResolutionException;
@@ -89,7 +152,6 @@ public abstract class WhitesourceMojo extends AbstractMojo {
             info("Skipping update");
         } else {
             try {
-                createService();
                 doExecute();
             } catch (DependencyResolutionException e) {
                 handleError(e);
@@ -98,9 +160,7 @@ public abstract class WhitesourceMojo extends AbstractMojo {
             } catch (RuntimeException e) {
                 throw new MojoFailureException("Unexpected error", e);
             } finally {
-                if (service != null) {
-                    service.shutdown();
-                }
+                shutdownService();
             }
         }
 
@@ -109,40 +169,123 @@ public abstract class WhitesourceMojo extends AbstractMojo {
 
     /* --- Protected methods --- */
 
-    protected void createService() {
-        String serviceUrl = session.getSystemProperties().getProperty(ClientConstants.SERVICE_URL_KEYWORD);
+    /**
+     * Resolves the service URL and proxy settings, and creates the clients that don't connect by themselves.
+     * Called once, before the first request or warm-up.
+     */
+    protected synchronized void initServiceSettings() {
+        if (serviceUrl != null) {
+            return;
+        }
+
+        serviceUrl = session.getSystemProperties().getProperty(ClientConstants.SERVICE_URL_KEYWORD);
         if (StringUtils.isBlank(serviceUrl)) {
             serviceUrl = session.getSystemProperties().getProperty(Constants.ALTERNATIVE_SERVICE_URL_KEYWORD, wssUrl);
         }
         info("Service URL is " + serviceUrl);
 
-        service = new WhitesourceService(Constants.AGENT_TYPE, Constants.AGENT_VERSION, serviceUrl, autoDetectProxySettings);
+        // get proxy configuration from session, resolved once per session
+        proxySettings = SessionServices.get(session).getProxySettings(serviceUrl, session);
+        if (proxySettings != null) {
+            info("Proxy hostname: " + proxySettings.getHostname());
+            info("Proxy port: " + proxySettings.getPort());
+            debug("Proxy username: " + proxySettings.getUsername());
+            debug("Proxy password: " + proxySettings.getPassword());
+        } else {
+            info("No Proxy Settings");
+        }
+
+        if (useStreamingRequests) {
+            streamingClient = new StreamingServiceClient(serviceUrl, proxySettings);
+            debug("Streaming requests enabled");
+        }
+
+        // shared by the goals of the session, so that the circuit stays open for the next modules
+        String retrierKey = serviceUrl + '|' + serviceRetries + '|' + serviceRetryDelayMillis + '|' + serviceRetryMaxDelayMillis
+                + '|' + serviceCallDeadlineSeconds + '|' + circuitBreakerThreshold;
+        retrier = SessionServices.get(session).getRetrier(retrierKey, new ServiceCallRetrier(serviceRetries,
+                serviceRetryDelayMillis, serviceRetryMaxDelayMillis, TimeUnit.SECONDS.toMillis(serviceCallDeadlineSeconds),
+                circuitBreakerThreshold, getLog()));
+    }
+
+    /**
+     * Starts opening a connection to WhiteSource in the background if requested,
+     * so that the first request finds it ready.
+     */
+    protected void warmUpConnection() {
+        if (warmUpConnection && connectionWarmer == null) {
+            initServiceSettings();
+            debug("Warming up connection to " + serviceUrl);
+            connectionWarmer = ConnectionWarmer.start(new StreamingServiceClient(serviceUrl, proxySettings));
+        }
+    }
+
+    /**
+     * Creates the service on first use, so that goals with nothing to send never create it.
+     *
+     * @return The service, null if requests are streamed, see {@link WhitesourceMojo#streamingClient}.
+     *
+     * @throws WssServiceException If the connection warm-up found WhiteSource unreachable.
+     */
+    protected synchronized WhitesourceService getService() throws WssServiceException {
+        initServiceSettings();
+        if (connectionWarmer != null) {
+            connectionWarmer.await();
+        }
+        if (service != null || streamingClient != null) {
+            return service;
+        }
+
+        // share the service and its connections with the other goals of the session when possible
+        service = SessionServices.get(session).getService(serviceUrl + '|' + autoDetectProxySettings, new SessionServices.ServiceFactory() {
+            @Override
+            public WhitesourceService newService() {
+                return WhitesourceMojo.this.newService();
+            }
+        });
+        sharedService = service != null;
+        if (sharedService) {
+            debug("Using WhiteSource Service shared by the session");
+        } else {
+            service = newService();
+        }
         if (service == null) {
             info("Failed to initiate WhiteSource Service");
         } else {
             info("Initiated WhiteSource Service");
         }
+        return service;
+    }
 
-        // get proxy configuration from session
-        ProxySettingsProvider proxySettingsProvider = ProxySettingsProviderFactory.getProxySettingsProviderForUrl(serviceUrl, session);
-        if (proxySettingsProvider.isProxyConfigured()) {
-            ProxySettings proxySettings = proxySettingsProvider.getProxySettings();
+    /**
+     * @return A new service for the configured URL and proxy, the caller is responsible for shutting it down.
+     */
+    protected WhitesourceService newService() {
+        WhitesourceService service = new WhitesourceService(Constants.AGENT_TYPE, Constants.AGENT_VERSION, serviceUrl, autoDetectProxySettings);
+        if (proxySettings != null) {
             service.getClient().setProxy(proxySettings.getHostname(), proxySettings.getPort(),
                     proxySettings.getUsername(), proxySettings.getPassword());
-            info("Proxy hostname: " + proxySettings.getHostname());
-            info("Proxy port: " + proxySettings.getPort());
-            debug("Proxy username: " + proxySettings.getUsername());
-            debug("Proxy password: " + proxySettings.getPassword());
-        } else {
-            info("No Proxy Settings");
         }
+        return service;
+    }
+
+    /**
+     * Called once the goal is done, shuts down the service unless it's still in use or shared by the session.
+     */
+    protected void shutdownService() {
+        if (service != null && !sharedService) {
+            service.shutdown();
+        }
+    }
+
+    protected boolean isFailOnError() {
+        return Boolean.valueOf(session.getSystemProperties().getProperty(
+                Constants.FAIL_ON_ERROR, String.valueOf(this.failOnError)));
     }
 
     protected void handleError(Exception error) throws MojoFailureException {
         String message = error.getMessage();
-        boolean failOnError = Boolean.valueOf(session.getSystemProperties().getProperty(
-                Constants.FAIL_ON_ERROR, String.valueOf(this.failOnError)));
-        if (failOnError) {
+        if (isFailOnError()) {
             debug(message, error);
             throw new MojoFailureException(message);
         } else {
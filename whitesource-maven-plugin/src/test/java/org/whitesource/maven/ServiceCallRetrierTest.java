@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.agent.api.dispatch.UpdateInventoryResult;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.client.WssServiceException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link ServiceCallRetrier} over {@link StreamingServiceClient} against a local stub server.
+ */
+public class ServiceCallRetrierTest {
+
+    /* --- Static members --- */
+
+    private static final String SUCCESS = "{\"status\":1,\"message\":\"ok\",\"data\":\"{\\\"organization\\\":\\\"Test Org\\\"}\"}";
+
+    /* --- Private Members --- */
+
+    private HttpServer server;
+    private StreamingServiceClient client;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Status and Retry-After header of the next responses, null for no header. Once empty, requests succeed.
+     */
+    private final Queue<String[]> responses = new LinkedList<String[]>();
+
+    /* --- Set up --- */
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+        server.createContext("/agent", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    // drained, so the connection can be reused
+                }
+                in.close();
+                requests.incrementAndGet();
+
+                String[] response;
+                synchronized (responses) {
+                    response = responses.poll();
+                }
+                if (response == null) {
+                    byte[] body = SUCCESS.getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                } else {
+                    if (response[1] != null) {
+                        exchange.getResponseHeaders().set("Retry-After", response[1]);
+                    }
+                    exchange.sendResponseHeaders(Integer.parseInt(response[0]), -1);
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        client = new StreamingServiceClient("http://127.0.0.1:" + server.getAddress().getPort() + "/agent", null);
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    /* --- Test methods --- */
+
+    @Test
+    public void retriesTooManyRequestsAfterTheDelayInSeconds() throws Exception {
+        respond(429, "1");
+        ServiceCallRetrier retrier = createRetrier(2, 60000, 0);
+
+        long start = System.currentTimeMillis();
+        UpdateInventoryResult result = update(retrier);
+
+        assertEquals("Test Org", result.getOrganization());
+        assertEquals(2, requests.get());
+        assertTrue("Retried before the Retry-After delay", System.currentTimeMillis() - start >= 1000);
+    }
+
+    @Test
+    public void retriesUnavailableAfterTheDelayAsDate() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        respond(503, format.format(new Date(System.currentTimeMillis() + 2000)));
+        ServiceCallRetrier retrier = createRetrier(2, 60000, 0);
+
+        long start = System.currentTimeMillis();
+        update(retrier);
+
+        assertEquals(2, requests.get());
+        // the date has a one second resolution
+        assertTrue("Retried before the Retry-After date", System.currentTimeMillis() - start >= 1000);
+    }
+
+    @Test
+    public void retriesWithBackoffWithoutRetryAfter() throws Exception {
+        respond(503, null);
+        respond(502, null);
+        ServiceCallRetrier retrier = createRetrier(2, 1, 0);
+
+        update(retrier);
+
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void doesNotRetryOtherStatuses() throws Exception {
+        respond(500, "0");
+        ServiceCallRetrier retrier = createRetrier(2, 1, 0);
+
+        try {
+            update(retrier);
+            fail("500 is not transient");
+        } catch (ServiceResponseException e) {
+            assertEquals(500, e.getStatus());
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void doesNotRetryStatusesFoundInMessages() throws Exception {
+        ServiceCallRetrier retrier = createRetrier(2, 1, 0);
+        final AtomicInteger calls = new AtomicInteger();
+
+        try {
+            retrier.call("Update request", new ServiceCallRetrier.Call<Object>() {
+                @Override
+                public Object call() throws WssServiceException {
+                    calls.incrementAndGet();
+                    throw new WssServiceException("Project 503 has an invalid dependency");
+                }
+            });
+            fail("The stock client's failure should be rethrown");
+        } catch (WssServiceException e) {
+            assertFalse(e instanceof ServiceResponseException);
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void stopsRetryingAtTheDeadline() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            respond(503, "1");
+        }
+        ServiceCallRetrier retrier = createRetrier(5, 1, 0, 1500);
+
+        long start = System.currentTimeMillis();
+        try {
+            update(retrier);
+            fail("The deadline should be reached before any success");
+        } catch (ServiceResponseException e) {
+            assertEquals(503, e.getStatus());
+        }
+
+        // the second retry would end past the deadline, so it isn't waited for
+        assertEquals(2, requests.get());
+        assertTrue("Waited past the deadline", System.currentTimeMillis() - start < 1500);
+    }
+
+    @Test
+    public void opensTheCircuitAfterConsecutiveFailures() throws Exception {
+        respond(503, null);
+        respond(503, null);
+        ServiceCallRetrier retrier = createRetrier(0, 1, 2);
+
+        for (int i = 0; i < 2; i++) {
+            assertFalse(retrier.isCircuitOpen());
+            try {
+                update(retrier);
+                fail("Call " + i + " should fail");
+            } catch (ServiceResponseException e) {
+                // expected
+            }
+        }
+        assertTrue(retrier.isCircuitOpen());
+
+        try {
+            update(retrier);
+            fail("The circuit is open");
+        } catch (WssServiceException e) {
+            assertFalse(e instanceof ServiceResponseException);
+        }
+        assertEquals("Called WhiteSource with the circuit open", 2, requests.get());
+    }
+
+    @Test
+    public void successResetsTheConsecutiveFailures() throws Exception {
+        respond(503, null);
+        ServiceCallRetrier retrier = createRetrier(0, 1, 2);
+
+        try {
+            update(retrier);
+            fail("First call should fail");
+        } catch (ServiceResponseException e) {
+            // expected
+        }
+        update(retrier);
+        respond(503, null);
+        try {
+            update(retrier);
+            fail("Third call should fail");
+        } catch (ServiceResponseException e) {
+            // expected
+        }
+
+        assertFalse("Failures aren't consecutive", retrier.isCircuitOpen());
+        assertEquals(3, requests.get());
+    }
+
+    /* --- Private methods --- */
+
+    private void respond(int status, String retryAfter) {
+        synchronized (responses) {
+            responses.add(new String[]{String.valueOf(status), retryAfter});
+        }
+    }
+
+    private ServiceCallRetrier createRetrier(int maxRetries, long baseDelayMillis, int circuitBreakerThreshold) {
+        return createRetrier(maxRetries, baseDelayMillis, circuitBreakerThreshold, 60000);
+    }
+
+    private ServiceCallRetrier createRetrier(int maxRetries, long baseDelayMillis, int circuitBreakerThreshold, long deadlineMillis) {
+        return new ServiceCallRetrier(maxRetries, baseDelayMillis, 60000, deadlineMillis, circuitBreakerThreshold,
+                new SystemStreamLog());
+    }
+
+    private UpdateInventoryResult update(ServiceCallRetrier retrier) throws WssServiceException {
+        return retrier.call("Update request", new ServiceCallRetrier.Call<UpdateInventoryResult>() {
+            @Override
+            public UpdateInventoryResult call() throws WssServiceException {
+                return client.update("org-token", null, "product", "1.0", Collections.<AgentProjectInfo>emptyList());
+            }
+        });
+    }
+}
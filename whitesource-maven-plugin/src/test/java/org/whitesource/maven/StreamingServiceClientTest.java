@@ -0,0 +1,339 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.agent.api.APIConstants;
+import org.whitesource.agent.api.dispatch.UpdateInventoryResult;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.Coordinates;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.maven.utils.proxy.ProxySettings;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link StreamingServiceClient} against a local stub server.
+ */
+public class StreamingServiceClientTest {
+
+    /* --- Static members --- */
+
+    private static final String ORG_TOKEN = "org-token";
+    private static final String PRODUCT = "product & co";
+    private static final String PRODUCT_VERSION = "1.0";
+    private static final String REQUESTER_EMAIL = "dev@example.com";
+    private static final String ORGANIZATION = "Test Org";
+
+    private static final Pattern TIME_STAMP = Pattern.compile(APIConstants.PARAM_TIME_STAMP + "=(\\d+)");
+
+    /* --- Private Members --- */
+
+    private HttpServer server;
+    private final List<byte[]> bodies = Collections.synchronizedList(new ArrayList<byte[]>());
+    private final List<Map<String, List<String>>> headers = Collections.synchronizedList(new ArrayList<Map<String, List<String>>>());
+
+    /* --- Set up --- */
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+        server.createContext("/agent", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                bodies.add(readFully(exchange.getRequestBody()));
+                headers.add(new HashMap<String, List<String>>(exchange.getRequestHeaders()));
+
+                JsonObject envelope = new JsonObject();
+                envelope.addProperty("status", 1);
+                envelope.addProperty("message", "ok");
+                envelope.addProperty("data", "{\"organization\":\"" + ORGANIZATION + "\"}");
+                byte[] response = new Gson().toJson(envelope).getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    /* --- Test methods --- */
+
+    @Test
+    public void updateSendsTheSameBodyAsTheStockClient() throws Exception {
+        Collection<AgentProjectInfo> projectInfos = createProjectInfos();
+
+        WhitesourceService service = new WhitesourceService(Constants.AGENT_TYPE, Constants.AGENT_VERSION, serviceUrl(), false);
+        try {
+            service.update(ORG_TOKEN, REQUESTER_EMAIL, PRODUCT, PRODUCT_VERSION, projectInfos);
+        } finally {
+            service.shutdown();
+        }
+        UpdateInventoryResult result = new StreamingServiceClient(serviceUrl(), null)
+                .update(ORG_TOKEN, REQUESTER_EMAIL, PRODUCT, PRODUCT_VERSION, projectInfos);
+
+        assertEquals(ORGANIZATION, result.getOrganization());
+        assertSameBodies();
+        assertEquals(Collections.singletonList("chunked"), headers.get(1).get("Transfer-encoding"));
+    }
+
+    @Test
+    public void checkPolicyComplianceSendsTheSameBodyAsTheStockClient() throws Exception {
+        Collection<AgentProjectInfo> projectInfos = createProjectInfos();
+
+        WhitesourceService service = new WhitesourceService(Constants.AGENT_TYPE, Constants.AGENT_VERSION, serviceUrl(), false);
+        try {
+            service.checkPolicyCompliance(ORG_TOKEN, PRODUCT, PRODUCT_VERSION, projectInfos, true);
+        } finally {
+            service.shutdown();
+        }
+        new StreamingServiceClient(serviceUrl(), null).checkPolicyCompliance(ORG_TOKEN, PRODUCT, PRODUCT_VERSION, projectInfos, true);
+
+        assertSameBodies();
+    }
+
+    @Test
+    public void metricsCountTheBytesWritten() throws Exception {
+        RunMetrics metrics = new RunMetrics("update", true);
+
+        new StreamingServiceClient(serviceUrl(), null)
+                .update(ORG_TOKEN, REQUESTER_EMAIL, PRODUCT, PRODUCT_VERSION, createProjectInfos(), metrics);
+
+        File file = File.createTempFile("metrics", ".json");
+        try {
+            metrics.writeJson(file);
+            Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            JsonObject counters;
+            try {
+                counters = new Gson().fromJson(reader, JsonObject.class).getAsJsonObject("counters");
+            } finally {
+                reader.close();
+            }
+            assertEquals(1, counters.get(RunMetrics.REQUESTS).getAsLong());
+            assertEquals(bodies.get(0).length, counters.get(RunMetrics.REQUEST_BYTES).getAsLong());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void formEncodingMatchesUrlEncoder() throws IOException {
+        String value = "plain-text_1.0* with spaces & = + % / \u00e9\u00e8 \u65e5\u672c \uD83D\uDE00"
+                + " unpaired \uD800x \uDC00 end \uDBFF";
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingServiceClient.FormEncodingWriter writer = new StreamingServiceClient.FormEncodingWriter(out);
+        // one char at a time, so that surrogate pairs are split between writes
+        for (int i = 0; i < value.length(); i++) {
+            writer.write(value.charAt(i));
+        }
+        writer.close();
+
+        assertEquals(URLEncoder.encode(value, "UTF-8"), out.toString("US-ASCII"));
+    }
+
+    @Test
+    public void proxyCredentialsAreSentUpFrontForHttp() throws Exception {
+        // the stub server acts as the proxy, requests to the proxy carry the absolute URL
+        StreamingServiceClient client = new StreamingServiceClient("http://whitesource.invalid/agent",
+                proxySettings(server.getAddress().getPort()));
+
+        client.update(ORG_TOKEN, null, PRODUCT, PRODUCT_VERSION, createProjectInfos());
+
+        assertEquals(1, headers.size());
+        assertEquals(Collections.singletonList("Basic dXNlcjpzZWNyZXQ="), headers.get(0).get("Proxy-authorization"));
+    }
+
+    @Test
+    public void proxyCredentialsAreSentWithTheTunnelRequest() throws Exception {
+        final ServerSocket proxy = new ServerSocket(0, 0, InetAddress.getByName("127.0.0.1"));
+        final List<String> connectRequests = Collections.synchronizedList(new ArrayList<String>());
+        Thread proxyThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // refuses every tunnel, after recording the CONNECT request
+                    while (!proxy.isClosed()) {
+                        Socket socket = proxy.accept();
+                        try {
+                            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+                            OutputStream out = socket.getOutputStream();
+                            String head;
+                            while ((head = readHead(reader)) != null) {
+                                connectRequests.add(head);
+                                out.write("HTTP/1.1 403 Forbidden\r\nContent-Length: 0\r\n\r\n".getBytes("US-ASCII"));
+                                out.flush();
+                            }
+                        } finally {
+                            socket.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    // closed by the test
+                }
+            }
+        });
+        proxyThread.setDaemon(true);
+        proxyThread.start();
+
+        try {
+            StreamingServiceClient client = new StreamingServiceClient("https://whitesource.invalid/agent",
+                    proxySettings(proxy.getLocalPort()));
+            try {
+                client.warmUp();
+                fail("The stub proxy refuses every tunnel");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("403 Forbidden"));
+            }
+        } finally {
+            proxy.close();
+        }
+
+        assertEquals(1, connectRequests.size());
+        String request = connectRequests.get(0);
+        assertTrue(request, request.startsWith("CONNECT whitesource.invalid:443 "));
+        assertEquals(request, "Basic dXNlcjpzZWNyZXQ=", proxyAuthorization(request));
+    }
+
+    /* --- Private methods --- */
+
+    private String serviceUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/agent";
+    }
+
+    /**
+     * Asserts that the stock client and the streaming client sent the same bytes, apart from the time stamp.
+     */
+    private void assertSameBodies() throws UnsupportedEncodingException {
+        assertEquals(2, bodies.size());
+        byte[] stockBody = withoutTimeStamp(bodies.get(0));
+        byte[] streamedBody = withoutTimeStamp(bodies.get(1));
+        assertArrayEquals(stockBody, streamedBody);
+    }
+
+    private static byte[] withoutTimeStamp(byte[] body) throws UnsupportedEncodingException {
+        // form bodies are plain ASCII once encoded
+        Matcher matcher = TIME_STAMP.matcher(new String(body, "ISO-8859-1"));
+        assertTrue("No time stamp sent", matcher.find());
+        return matcher.replaceFirst(APIConstants.PARAM_TIME_STAMP + "=0").getBytes("ISO-8859-1");
+    }
+
+    private static Collection<AgentProjectInfo> createProjectInfos() {
+        List<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>();
+        for (int i = 0; i < 3; i++) {
+            AgentProjectInfo projectInfo = new AgentProjectInfo();
+            projectInfo.setCoordinates(new Coordinates("org.example", "module-" + i, "1.0"));
+            List<DependencyInfo> dependencies = new ArrayList<DependencyInfo>();
+            for (int j = 0; j < 100; j++) {
+                DependencyInfo dependency = new DependencyInfo();
+                dependency.setGroupId("org.example.deps");
+                dependency.setArtifactId("lib-" + j);
+                dependency.setVersion("2." + j);
+                dependency.setSha1(Integer.toHexString(i * 1000 + j));
+                dependency.setSystemPath("C:\\r\u00e9pertoire\\\u65e5\u672c \uD83D\uDE00\\lib-" + j + ".jar");
+                dependencies.add(dependency);
+            }
+            projectInfo.setDependencies(dependencies);
+            projectInfos.add(projectInfo);
+        }
+        return projectInfos;
+    }
+
+    private static ProxySettings proxySettings(final int port) {
+        return new ProxySettings() {
+            @Override
+            public String getHostname() {
+                return "127.0.0.1";
+            }
+
+            @Override
+            public int getPort() {
+                return port;
+            }
+
+            @Override
+            public String getUsername() {
+                return "user";
+            }
+
+            @Override
+            public String getPassword() {
+                return "secret";
+            }
+        };
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * @return The value of the Proxy-Authorization header of the given request head, null if none.
+     */
+    private static String proxyAuthorization(String head) {
+        for (String line : head.split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).equalsIgnoreCase("Proxy-Authorization")) {
+                return line.substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The request line and headers of the next request, null once the connection is closed.
+     */
+    private static String readHead(BufferedReader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null && line.length() > 0) {
+            sb.append(line).append("\r\n");
+        }
+        return line == null ? null : sb.toString();
+    }
+}
@@ -1,19 +1,27 @@
 package org.whitesource.maven.utils;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Author: Itai Marko
  */
 public final class Invoker {
 
+    // resolved methods by declaring class and signature, lookups are repeated for every module.
+    // A cached call costs 10 to 20ns more than a direct one (see InvokerBenchmark) and is made a few times per module,
+    // so method handles wouldn't be worth raising the java target for.
+    private static final ConcurrentMap<MethodKey, Method> METHODS = new ConcurrentHashMap<MethodKey, Method>();
+
     public static Object invoke(Object object, String method) {
         return invoke(object.getClass(), object, method);
     }
 
     public static Object invoke(Class<?> objectClazz, Object object, String method) {
         try {
-            return objectClazz.getMethod(method).invoke( object );
+            return getMethod(objectClazz, method, null).invoke( object );
         } catch (IllegalAccessException e) {
             throw new RuntimeException(e.getMessage(), e);
         } catch (InvocationTargetException e) {
@@ -26,7 +34,7 @@ public final class Invoker {
     public static Object invoke(Object object, String method, Class<?> clazz, Object arg) {
         final Class<?> objectClazz = object.getClass();
         try {
-            return objectClazz.getMethod(method, clazz).invoke(object, arg);
+            return getMethod(objectClazz, method, clazz).invoke(object, arg);
         } catch (IllegalAccessException e) {
             throw new RuntimeException(e.getMessage(), e);
         } catch (InvocationTargetException e) {
@@ -36,7 +44,53 @@ public final class Invoker {
         }
     }
 
+    private static Method getMethod(Class<?> objectClazz, String method, Class<?> parameterType) throws NoSuchMethodException {
+        MethodKey key = new MethodKey(objectClazz, method, parameterType);
+        Method resolved = METHODS.get(key);
+        if (resolved == null) {
+            resolved = parameterType == null ? objectClazz.getMethod(method) : objectClazz.getMethod(method, parameterType);
+            Method existing = METHODS.putIfAbsent(key, resolved);
+            if (existing != null) {
+                resolved = existing;
+            }
+        }
+        return resolved;
+    }
 
     // prevent instantiation
     private Invoker() {}
+
+    /**
+     * Identifies a method by its class, name and single parameter type (null for no parameters).
+     */
+    private static final class MethodKey {
+
+        private final Class<?> clazz;
+        private final String name;
+        private final Class<?> parameterType;
+        private final int hashCode;
+
+        private MethodKey(Class<?> clazz, String name, Class<?> parameterType) {
+            this.clazz = clazz;
+            this.name = name;
+            this.parameterType = parameterType;
+            int result = clazz.hashCode();
+            result = 31 * result + name.hashCode();
+            result = 31 * result + (parameterType == null ? 0 : parameterType.hashCode());
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MethodKey)) return false;
+            MethodKey other = (MethodKey) o;
+            return clazz == other.clazz && parameterType == other.parameterType && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package org.whitesource.maven.utils.checksum;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Calculates the SHA-1 checksum of an artifact file, as a lower case hex string.
+ */
+public interface ChecksumCalculator {
+
+    String calculateSHA1(File file) throws IOException;
+}
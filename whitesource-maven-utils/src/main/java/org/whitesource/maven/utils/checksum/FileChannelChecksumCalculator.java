@@ -0,0 +1,176 @@
+package org.whitesource.maven.utils.checksum;
+
+import org.whitesource.maven.utils.jfr.EventSpan;
+import org.whitesource.maven.utils.jfr.FlightRecorderEvents;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link ChecksumCalculator} reading large files through a {@link FileChannel} into a reusable heap buffer.
+ *
+ * <p>
+ *     The digest reads heap buffers in place, a direct buffer would be copied to a temporary array on every update.
+ *     Small files are read in one go through the stream. Buffers are kept per thread, so the calculator is thread safe.
+ *     Memory mapping was not used as mapped files can't be released deterministically and stay locked on some platforms.
+ * </p>
+ *
+ * <p>
+ *     When several security providers offer SHA-1, the fastest one is picked once per JVM by digesting a sample buffer.
+ * </p>
+ */
+public class FileChannelChecksumCalculator implements ChecksumCalculator {
+
+    /* --- Static members --- */
+
+    public static final String SHA1 = "SHA-1";
+
+    private static final int SMALL_FILE_THRESHOLD = 64 * 1024;
+    private static final int LARGE_BUFFER_SIZE = 1024 * 1024;
+    private static final int CALIBRATION_BUFFER_SIZE = 256 * 1024;
+    private static final int CALIBRATION_ROUNDS = 8;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<byte[]> HEAP_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SMALL_FILE_THRESHOLD];
+        }
+    };
+
+    private static final ThreadLocal<ByteBuffer> LARGE_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(LARGE_BUFFER_SIZE);
+        }
+    };
+
+    /* --- Private Members --- */
+
+    private final Provider provider;
+
+    /* --- Constructors --- */
+
+    /**
+     * Creates a calculator using the fastest available SHA-1 provider.
+     */
+    public FileChannelChecksumCalculator() {
+        this(ProviderHolder.FASTEST);
+    }
+
+    /**
+     * @param provider The SHA-1 provider to use, null for the default provider.
+     */
+    public FileChannelChecksumCalculator(Provider provider) {
+        this.provider = provider;
+    }
+
+    /* --- ChecksumCalculator implementation --- */
+
+    @Override
+    public String calculateSHA1(File file) throws IOException {
+        EventSpan span = FlightRecorderEvents.startChecksum(file);
+        MessageDigest digest = newDigest(provider);
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            if (channel.size() <= SMALL_FILE_THRESHOLD) {
+                byte[] buffer = HEAP_BUFFER.get();
+                int read;
+                while ((read = fis.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            } else {
+                ByteBuffer buffer = LARGE_BUFFER.get();
+                buffer.clear();
+                while (channel.read(buffer) != -1) {
+                    digest.update(buffer.array(), buffer.arrayOffset(), buffer.position());
+                    buffer.clear();
+                }
+            }
+        } finally {
+            fis.close();
+            span.end();
+        }
+        return toHex(digest.digest());
+    }
+
+    /* --- Public methods --- */
+
+    public Provider getProvider() {
+        return provider;
+    }
+
+    /* --- Private methods --- */
+
+    private static MessageDigest newDigest(Provider provider) {
+        try {
+            return provider == null ? MessageDigest.getInstance(SHA1) : MessageDigest.getInstance(SHA1, provider);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static Provider selectFastestProvider() {
+        List<Provider> candidates = new ArrayList<Provider>();
+        for (Provider provider : Security.getProviders()) {
+            if (provider.getService("MessageDigest", SHA1) != null) {
+                candidates.add(provider);
+            }
+        }
+        if (candidates.size() <= 1) {
+            return candidates.isEmpty() ? null : candidates.get(0);
+        }
+
+        byte[] sample = new byte[CALIBRATION_BUFFER_SIZE];
+        Provider fastest = null;
+        long fastestTime = Long.MAX_VALUE;
+        for (Provider provider : candidates) {
+            try {
+                // warm up before measuring
+                newDigest(provider).digest(sample);
+                long start = System.nanoTime();
+                MessageDigest digest = newDigest(provider);
+                for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+                    digest.update(sample);
+                }
+                digest.digest();
+                long time = System.nanoTime() - start;
+                if (time < fastestTime) {
+                    fastestTime = time;
+                    fastest = provider;
+                }
+            } catch (RuntimeException e) {
+                // skip broken providers
+            }
+        }
+        return fastest;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Lazily selects the provider once per JVM.
+     */
+    private static class ProviderHolder {
+        private static final Provider FASTEST = selectFastestProvider();
+    }
+}
@@ -0,0 +1,155 @@
+package org.whitesource.maven.utils.checksum;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calculates the checksums of a batch of files concurrently.
+ *
+ * <p>
+ *     Files are submitted in path order, so that files sharing a directory are read close together.
+ *     The total size of the files being read at any moment is bounded, a single file larger than the bound
+ *     is read alone.
+ * </p>
+ */
+public class ParallelChecksumExecutor {
+
+    /* --- Static members --- */
+
+    private static final int KB = 1024;
+
+    /* --- Private Members --- */
+
+    private final ChecksumCalculator calculator;
+    private final int threads;
+    private final int maxKbInFlight;
+    private final ExecutorService executorService;
+    private final Semaphore kbInFlight;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param calculator       Calculates the checksum of a single file, must be thread safe.
+     * @param threads          Number of worker threads, 1 calculates in the calling thread.
+     * @param maxBytesInFlight Maximum total size of the files being read concurrently.
+     */
+    public ParallelChecksumExecutor(ChecksumCalculator calculator, int threads, long maxBytesInFlight) {
+        if (calculator == null) {
+            throw new IllegalArgumentException("Calculator can't be null");
+        }
+        this.calculator = calculator;
+        this.threads = Math.max(1, threads);
+        this.maxKbInFlight = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytesInFlight / KB));
+        this.kbInFlight = new Semaphore(maxKbInFlight);
+        this.executorService = this.threads > 1 ? Executors.newFixedThreadPool(this.threads, new WorkerThreadFactory()) : null;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @param files Files to calculate.
+     *
+     * @return The checksum of each file, files that failed to be read are missing from the result.
+     *
+     * @throws InterruptedException If interrupted while waiting for the calculation.
+     */
+    public Map<File, String> calculate(Collection<File> files) throws InterruptedException {
+        List<File> sorted = new ArrayList<File>(new HashSet<File>(files));
+        Collections.sort(sorted);
+
+        Map<File, String> checksums = new HashMap<File, String>(sorted.size() * 2);
+        if (executorService == null) {
+            for (File file : sorted) {
+                try {
+                    checksums.put(file, calculator.calculateSHA1(file));
+                } catch (IOException e) {
+                    // reported as missing
+                }
+            }
+            return checksums;
+        }
+
+        Map<File, Future<String>> futures = new LinkedHashMap<File, Future<String>>();
+        try {
+            for (final File file : sorted) {
+                final int permits = (int) Math.max(1, Math.min(maxKbInFlight, file.length() / KB));
+                kbInFlight.acquire(permits);
+                // the permits are released by whoever claims the task first: the calculation once it's over,
+                // or the cancellation of a task that never started. A cancelled running task keeps them until it's over.
+                final AtomicBoolean claimed = new AtomicBoolean();
+                FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+                    @Override
+                    public String call() throws IOException {
+                        if (!claimed.compareAndSet(false, true)) {
+                            return null;
+                        }
+                        try {
+                            return calculator.calculateSHA1(file);
+                        } finally {
+                            kbInFlight.release(permits);
+                        }
+                    }
+                }) {
+                    @Override
+                    protected void done() {
+                        if (claimed.compareAndSet(false, true)) {
+                            kbInFlight.release(permits);
+                        }
+                    }
+                };
+                try {
+                    executorService.execute(task);
+                } catch (RejectedExecutionException e) {
+                    claimed.set(true);
+                    kbInFlight.release(permits);
+                    throw e;
+                }
+                futures.put(file, task);
+            }
+
+            for (Map.Entry<File, Future<String>> entry : futures.entrySet()) {
+                try {
+                    checksums.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof IOException)) {
+                        throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+                    }
+                    // reported as missing
+                }
+            }
+        } finally {
+            for (Future<String> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        return checksums;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "whitesource-checksum-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
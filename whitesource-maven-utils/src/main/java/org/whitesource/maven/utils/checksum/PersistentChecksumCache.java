@@ -0,0 +1,289 @@
+package org.whitesource.maven.utils.checksum;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ChecksumCalculator} that keeps the checksums of its delegate on disk between builds.
+ *
+ * <p>
+ *     Entries are keyed by the absolute path, size and modification time of the artifact file.
+ *     Each entry is a small file of its own, written to a temporary file and renamed into place,
+ *     so several processes may share the same cache directory without locking each other.
+ *     Errors reading or writing the cache are never propagated, the checksum is simply recalculated.
+ * </p>
+ */
+public class PersistentChecksumCache implements ChecksumCalculator {
+
+    /* --- Static members --- */
+
+    private static final String ENTRY_SUFFIX = ".entry";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String EVICTION_MARKER = ".last-eviction";
+    private static final String ENCODING = "UTF-8";
+
+    private static final long TOUCH_INTERVAL = 60L * 60L * 1000L;
+    private static final long EVICTION_INTERVAL = 60L * 60L * 1000L;
+
+    /* --- Private Members --- */
+
+    private final ChecksumCalculator delegate;
+    private final File directory;
+    private final int maxEntries;
+    private final long maxAge;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param delegate   Calculates checksums missing from the cache.
+     * @param directory  Directory holding the cache entries, created if missing.
+     * @param maxEntries Maximum number of entries kept on {@link #evict()}, non positive for no limit.
+     * @param maxAge     Entries not used for longer than this (in milliseconds) are removed on {@link #evict()},
+     *                   non positive for no limit.
+     */
+    public PersistentChecksumCache(ChecksumCalculator delegate, File directory, int maxEntries, long maxAge) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate can't be null");
+        }
+        if (directory == null) {
+            throw new IllegalArgumentException("Cache directory can't be null");
+        }
+        this.delegate = delegate;
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.maxAge = maxAge;
+    }
+
+    /* --- ChecksumCalculator implementation --- */
+
+    @Override
+    public String calculateSHA1(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        File entry = getEntryFile(path);
+        String sha1 = readEntry(entry, path, length, lastModified);
+        if (sha1 == null) {
+            misses.incrementAndGet();
+            sha1 = delegate.calculateSHA1(file);
+            writeEntry(entry, path, length, lastModified, sha1);
+        } else {
+            hits.incrementAndGet();
+        }
+        return sha1;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Removes entries exceeding the maximum age and the least recently used entries exceeding the maximum count.
+     * Runs at most once per hour for all processes sharing the cache directory.
+     */
+    public void evict() {
+        File marker = new File(directory, EVICTION_MARKER);
+        long now = System.currentTimeMillis();
+        if (marker.exists() && now - marker.lastModified() < EVICTION_INTERVAL) {
+            return;
+        }
+        touch(marker, now);
+
+        List<File> entries = new ArrayList<File>();
+        File[] buckets = directory.listFiles();
+        if (buckets == null) {
+            return;
+        }
+        for (File bucket : buckets) {
+            File[] files = bucket.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                String name = file.getName();
+                long age = now - file.lastModified();
+                if (name.endsWith(TEMP_SUFFIX) && age > EVICTION_INTERVAL) {
+                    // left behind by a crashed process
+                    file.delete();
+                } else if (name.endsWith(ENTRY_SUFFIX)) {
+                    if (maxAge > 0 && age > maxAge) {
+                        file.delete();
+                    } else {
+                        entries.add(file);
+                    }
+                }
+            }
+        }
+
+        if (maxEntries > 0 && entries.size() > maxEntries) {
+            final int excess = entries.size() - maxEntries;
+            Collections.sort(entries, new Comparator<File>() {
+                @Override
+                public int compare(File f1, File f2) {
+                    long m1 = f1.lastModified();
+                    long m2 = f2.lastModified();
+                    return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+                }
+            });
+            for (int i = 0; i < excess; i++) {
+                entries.get(i).delete();
+            }
+        }
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /* --- Private methods --- */
+
+    private File getEntryFile(String path) {
+        String key = toHex(digest(path));
+        return new File(new File(directory, key.substring(0, 2)), key + ENTRY_SUFFIX);
+    }
+
+    private String readEntry(File entry, String path, long length, long lastModified) {
+        if (!entry.isFile()) {
+            return null;
+        }
+
+        String line = null;
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(entry), ENCODING));
+            line = reader.readLine();
+        } catch (IOException e) {
+            // treat as a miss
+        } finally {
+            close(reader);
+        }
+
+        // <length> <lastModified> <sha1> <path>
+        String sha1 = null;
+        if (line != null) {
+            String[] fields = line.split(" ", 4);
+            if (fields.length == 4 && fields[3].equals(path)
+                    && fields[0].equals(String.valueOf(length))
+                    && fields[1].equals(String.valueOf(lastModified))
+                    && isSha1(fields[2])) {
+                sha1 = fields[2];
+                long now = System.currentTimeMillis();
+                if (now - entry.lastModified() > TOUCH_INTERVAL) {
+                    // keep recently used entries from being evicted
+                    touch(entry, now);
+                }
+            }
+        }
+        return sha1;
+    }
+
+    private void writeEntry(File entry, String path, long length, long lastModified, String sha1) {
+        if (!isSha1(sha1)) {
+            return;
+        }
+
+        File bucket = entry.getParentFile();
+        if (!bucket.isDirectory() && !bucket.mkdirs() && !bucket.isDirectory()) {
+            return;
+        }
+
+        File temp = null;
+        Writer writer = null;
+        try {
+            temp = File.createTempFile(entry.getName(), TEMP_SUFFIX, bucket);
+            writer = new OutputStreamWriter(new FileOutputStream(temp), ENCODING);
+            writer.write(length + " " + lastModified + " " + sha1 + " " + path + "\n");
+            writer.close();
+            writer = null;
+
+            // rename is atomic on the same file system, readers never see a partial entry
+            if (!temp.renameTo(entry)) {
+                // some platforms won't rename over an existing file
+                entry.delete();
+                if (temp.renameTo(entry)) {
+                    temp = null;
+                }
+            } else {
+                temp = null;
+            }
+        } catch (IOException e) {
+            // the cache is best effort only
+        } finally {
+            close(writer);
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static void touch(File file, long time) {
+        if (!file.setLastModified(time) && !file.exists()) {
+            try {
+                File parent = file.getParentFile();
+                if (parent != null && !parent.isDirectory()) {
+                    parent.mkdirs();
+                }
+                file.createNewFile();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static boolean isSha1(String value) {
+        if (value == null || value.length() != 40) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] digest(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(value.getBytes(ENCODING));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.whitesource.maven.utils.checksum;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ChecksumCalculator} that reads the <code>.sha1</code> file the repository left next to the artifact,
+ * falling back to its delegate if the file is missing or malformed.
+ *
+ * <p>
+ *     Snapshot artifacts are always calculated, as a local install may overwrite them without updating the sidecar.
+ *     A random sample of the sidecars may be verified against the delegate in order to catch corrupted ones,
+ *     in which case the calculated checksum is returned.
+ * </p>
+ */
+public class SidecarChecksumCalculator implements ChecksumCalculator {
+
+    /* --- Static members --- */
+
+    private static final String SIDECAR_EXTENSION = ".sha1";
+    private static final String SNAPSHOT = "SNAPSHOT";
+    private static final int MAX_SIDECAR_LENGTH = 1024;
+    private static final int SHA1_LENGTH = 40;
+
+    /* --- Private Members --- */
+
+    private final ChecksumCalculator delegate;
+    private final double verificationRate;
+    private final Random random = new Random();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger verified = new AtomicInteger();
+    private final Collection<File> mismatches = Collections.synchronizedList(new ArrayList<File>());
+
+    /* --- Constructors --- */
+
+    /**
+     * @param delegate         Calculates checksums of artifacts without a usable sidecar.
+     * @param verificationRate Fraction (0 to 1) of the sidecars to verify against the delegate.
+     */
+    public SidecarChecksumCalculator(ChecksumCalculator delegate, double verificationRate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate can't be null");
+        }
+        this.delegate = delegate;
+        this.verificationRate = verificationRate;
+    }
+
+    /* --- ChecksumCalculator implementation --- */
+
+    @Override
+    public String calculateSHA1(File file) throws IOException {
+        String sha1 = null;
+        if (!file.getName().contains(SNAPSHOT)) {
+            sha1 = readSidecar(new File(file.getPath() + SIDECAR_EXTENSION));
+        }
+
+        if (sha1 == null) {
+            sha1 = delegate.calculateSHA1(file);
+        } else if (verificationRate > 0 && random.nextDouble() < verificationRate) {
+            verified.incrementAndGet();
+            String calculated = delegate.calculateSHA1(file);
+            if (!sha1.equals(calculated)) {
+                mismatches.add(file);
+                sha1 = calculated;
+            } else {
+                hits.incrementAndGet();
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        return sha1;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return Number of checksums taken from a sidecar.
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of sidecars verified against the delegate.
+     */
+    public int getVerified() {
+        return verified.get();
+    }
+
+    /**
+     * @return Artifact files whose sidecar didn't match the calculated checksum.
+     */
+    public Collection<File> getMismatches() {
+        synchronized (mismatches) {
+            return new ArrayList<File>(mismatches);
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private String readSidecar(File sidecar) {
+        long length = sidecar.length();
+        if (length < SHA1_LENGTH || length > MAX_SIDECAR_LENGTH || !sidecar.isFile()) {
+            return null;
+        }
+
+        String line = null;
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(sidecar), "US-ASCII"));
+            line = reader.readLine();
+        } catch (IOException e) {
+            // fall back to calculation
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        // some tools append the file name after the checksum
+        String sha1 = null;
+        if (line != null) {
+            String token = line.trim();
+            int end = 0;
+            while (end < token.length() && !Character.isWhitespace(token.charAt(end))) {
+                end++;
+            }
+            token = token.substring(0, end);
+            if (isSha1(token)) {
+                sha1 = token.toLowerCase();
+            }
+        }
+        return sha1;
+    }
+
+    private static boolean isSha1(String value) {
+        if (value.length() != SHA1_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < SHA1_LENGTH; i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+package org.whitesource.maven.utils.checksum;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ChecksumCalculator} that calculates each file at most once for its lifetime.
+ *
+ * <p>
+ *     Concurrent callers asking for a file that is being calculated wait for that calculation
+ *     instead of starting another one. Failures are not remembered, the next request for the file calculates it again,
+ *     so a read interrupted by a cancelled prefetch doesn't fail later modules.
+ * </p>
+ */
+public class SingleFlightChecksumCalculator implements ChecksumCalculator {
+
+    /* --- Private Members --- */
+
+    private final ChecksumCalculator delegate;
+    private final ConcurrentMap<File, FutureTask<String>> checksums = new ConcurrentHashMap<File, FutureTask<String>>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /* --- Constructors --- */
+
+    public SingleFlightChecksumCalculator(ChecksumCalculator delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate can't be null");
+        }
+        this.delegate = delegate;
+    }
+
+    /* --- ChecksumCalculator implementation --- */
+
+    @Override
+    public String calculateSHA1(File file) throws IOException {
+        final File key = file.getAbsoluteFile();
+        FutureTask<String> task = checksums.get(key);
+        boolean calculatedHere = false;
+        if (task == null) {
+            FutureTask<String> newTask = new FutureTask<String>(new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return delegate.calculateSHA1(key);
+                }
+            });
+            task = checksums.putIfAbsent(key, newTask);
+            if (task == null) {
+                misses.incrementAndGet();
+                task = newTask;
+                calculatedHere = true;
+                task.run();
+            } else {
+                hits.incrementAndGet();
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the checksum of " + key);
+        } catch (ExecutionException e) {
+            // forget the failure, the next caller calculates again, e.g. after a read interrupted by a cancellation
+            checksums.remove(key, task);
+            Throwable cause = e.getCause();
+            if (!calculatedHere && isInterruption(cause) && !Thread.currentThread().isInterrupted()) {
+                // the calculating thread was interrupted, not this one
+                return calculateSHA1(key);
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @param file Artifact file.
+     *
+     * @return The checksum of the file if it was already calculated, null otherwise.
+     */
+    public String getCalculated(File file) {
+        FutureTask<String> task = checksums.get(file.getAbsoluteFile());
+        if (task != null && task.isDone()) {
+            try {
+                String sha1 = task.get();
+                hits.incrementAndGet();
+                return sha1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // not calculated, the next calculation tries again
+            }
+        }
+        return null;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The percentage of requests answered without calculation.
+     */
+    public double getHitRate() {
+        int total = hits.get() + misses.get();
+        return total == 0 ? 0 : 100.0 * hits.get() / total;
+    }
+
+    /* --- Private methods --- */
+
+    private static boolean isInterruption(Throwable cause) {
+        return cause instanceof InterruptedIOException || cause instanceof ClosedByInterruptException;
+    }
+}
@@ -0,0 +1,340 @@
+package org.whitesource.maven.utils.dependencies;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A resolved dependency graph stored as int indexed parallel arrays.
+ *
+ * <p>
+ *     Coordinates (group, artifact, version, classifier, type and file), scopes and exclusions are interned into tables,
+ *     nodes only hold their index in those tables along with the index of their parent, first child and next sibling.
+ *     Node {@link #ROOT} is the project itself and has no coordinates.
+ * </p>
+ *
+ * <p>
+ *     Nodes are numbered in depth first pre-order, so the subtree of a node spans the indices
+ *     from the node itself up to {@link #getSubtreeEnd(int)} (exclusive), and every node has a larger index than its parent.
+ * </p>
+ */
+public class CompactDependencyGraph {
+
+    /* --- Static members --- */
+
+    public static final int ROOT = 0;
+    public static final int NONE = -1;
+
+    /* --- Private Members --- */
+
+    private final int nodeCount;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] coordinates;
+    private final byte[] scopes;
+    private final boolean[] optionals;
+    private final int[] exclusionStarts;
+    private final int[] exclusionCounts;
+    private final int[] nodeExclusions;
+    private final int[] subtreeEnds;
+
+    private final String[] groupIds;
+    private final String[] artifactIds;
+    private final String[] versions;
+    private final String[] classifiers;
+    private final String[] types;
+    private final File[] files;
+
+    private final String[] scopeNames;
+
+    private final String[] exclusionGroupIds;
+    private final String[] exclusionArtifactIds;
+
+    /* --- Constructors --- */
+
+    private CompactDependencyGraph(Builder builder) {
+        nodeCount = builder.nodeCount;
+        parents = Arrays.copyOf(builder.parents, nodeCount);
+        firstChildren = Arrays.copyOf(builder.firstChildren, nodeCount);
+        nextSiblings = Arrays.copyOf(builder.nextSiblings, nodeCount);
+        coordinates = Arrays.copyOf(builder.coordinates, nodeCount);
+        scopes = Arrays.copyOf(builder.scopes, nodeCount);
+        optionals = Arrays.copyOf(builder.optionals, nodeCount);
+        exclusionStarts = Arrays.copyOf(builder.exclusionStarts, nodeCount);
+        exclusionCounts = Arrays.copyOf(builder.exclusionCounts, nodeCount);
+        nodeExclusions = Arrays.copyOf(builder.nodeExclusions, builder.nodeExclusionCount);
+        subtreeEnds = computeSubtreeEnds(parents, nodeCount);
+
+        int coordinateCount = builder.coordinateIds.size();
+        groupIds = builder.groupIds.toArray(new String[coordinateCount]);
+        artifactIds = builder.artifactIds.toArray(new String[coordinateCount]);
+        versions = builder.versions.toArray(new String[coordinateCount]);
+        classifiers = builder.classifiers.toArray(new String[coordinateCount]);
+        types = builder.types.toArray(new String[coordinateCount]);
+        files = builder.files.toArray(new File[coordinateCount]);
+
+        scopeNames = builder.scopeNames.toArray(new String[builder.scopeNames.size()]);
+
+        exclusionGroupIds = builder.exclusionGroupIds.toArray(new String[builder.exclusionGroupIds.size()]);
+        exclusionArtifactIds = builder.exclusionArtifactIds.toArray(new String[builder.exclusionArtifactIds.size()]);
+    }
+
+    /* --- Nodes --- */
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    /**
+     * @return The index following the last node in the subtree of the given node.
+     */
+    public int getSubtreeEnd(int node) {
+        return subtreeEnds[node];
+    }
+
+    public int getCoordinate(int node) {
+        return coordinates[node];
+    }
+
+    public String getScope(int node) {
+        return scopes[node] < 0 ? null : scopeNames[scopes[node]];
+    }
+
+    public boolean isOptional(int node) {
+        return optionals[node];
+    }
+
+    public int getExclusionCount(int node) {
+        return exclusionCounts[node];
+    }
+
+    public String getExclusionGroupId(int node, int index) {
+        return exclusionGroupIds[nodeExclusions[exclusionStarts[node] + index]];
+    }
+
+    public String getExclusionArtifactId(int node, int index) {
+        return exclusionArtifactIds[nodeExclusions[exclusionStarts[node] + index]];
+    }
+
+    /* --- Coordinates --- */
+
+    public int getCoordinateCount() {
+        return groupIds.length;
+    }
+
+    public String getGroupId(int coordinate) {
+        return groupIds[coordinate];
+    }
+
+    public String getArtifactId(int coordinate) {
+        return artifactIds[coordinate];
+    }
+
+    public String getVersion(int coordinate) {
+        return versions[coordinate];
+    }
+
+    public String getClassifier(int coordinate) {
+        return classifiers[coordinate];
+    }
+
+    public String getType(int coordinate) {
+        return types[coordinate];
+    }
+
+    public File getFile(int coordinate) {
+        return files[coordinate];
+    }
+
+    /* --- Private methods --- */
+
+    private static int[] computeSubtreeEnds(int[] parents, int nodeCount) {
+        // children always follow their parent, so a single backward pass is enough
+        int[] ends = new int[nodeCount];
+        for (int i = nodeCount - 1; i >= 0; i--) {
+            ends[i] = Math.max(ends[i], i + 1);
+            if (parents[i] != NONE) {
+                ends[parents[i]] = Math.max(ends[parents[i]], ends[i]);
+            }
+        }
+        return ends;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Builds a graph node by node, in depth first pre-order.
+     * Exclusions of a node must be added before the next node.
+     */
+    public static class Builder {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private int nodeCount;
+        private int[] parents = new int[INITIAL_CAPACITY];
+        private int[] firstChildren = new int[INITIAL_CAPACITY];
+        private int[] lastChildren = new int[INITIAL_CAPACITY];
+        private int[] nextSiblings = new int[INITIAL_CAPACITY];
+        private int[] coordinates = new int[INITIAL_CAPACITY];
+        private byte[] scopes = new byte[INITIAL_CAPACITY];
+        private boolean[] optionals = new boolean[INITIAL_CAPACITY];
+        private int[] exclusionStarts = new int[INITIAL_CAPACITY];
+        private int[] exclusionCounts = new int[INITIAL_CAPACITY];
+        private int nodeExclusionCount;
+        private int[] nodeExclusions = new int[INITIAL_CAPACITY];
+
+        private final Map<String, Integer> coordinateIds = new HashMap<String, Integer>();
+        private final Map<String, String> strings = new HashMap<String, String>();
+        private final List<String> groupIds = new ArrayList<String>();
+        private final List<String> artifactIds = new ArrayList<String>();
+        private final List<String> versions = new ArrayList<String>();
+        private final List<String> classifiers = new ArrayList<String>();
+        private final List<String> types = new ArrayList<String>();
+        private final List<File> files = new ArrayList<File>();
+
+        private final List<String> scopeNames = new ArrayList<String>();
+
+        private final Map<String, Integer> exclusionIds = new HashMap<String, Integer>();
+        private final List<String> exclusionGroupIds = new ArrayList<String>();
+        private final List<String> exclusionArtifactIds = new ArrayList<String>();
+
+        public Builder() {
+            // the project itself
+            addNode(NONE, NONE, null, false);
+        }
+
+        /**
+         * @return The index of the new node.
+         */
+        public int addNode(int parent, String groupId, String artifactId, String version, String classifier,
+                           String type, File file, String scope, boolean optional) {
+            return addNode(parent, internCoordinate(groupId, artifactId, version, classifier, type, file), scope, optional);
+        }
+
+        public void addExclusion(int node, String groupId, String artifactId) {
+            if (node != nodeCount - 1) {
+                throw new IllegalStateException("Exclusions must be added right after their node");
+            }
+
+            String key = groupId + ':' + artifactId;
+            Integer id = exclusionIds.get(key);
+            if (id == null) {
+                id = exclusionGroupIds.size();
+                exclusionIds.put(key, id);
+                exclusionGroupIds.add(intern(groupId));
+                exclusionArtifactIds.add(intern(artifactId));
+            }
+
+            if (nodeExclusionCount == nodeExclusions.length) {
+                nodeExclusions = Arrays.copyOf(nodeExclusions, nodeExclusionCount * 2);
+            }
+            nodeExclusions[nodeExclusionCount++] = id;
+            exclusionCounts[node]++;
+        }
+
+        public CompactDependencyGraph build() {
+            return new CompactDependencyGraph(this);
+        }
+
+        private int addNode(int parent, int coordinate, String scope, boolean optional) {
+            ensureCapacity();
+            int node = nodeCount++;
+            parents[node] = parent;
+            firstChildren[node] = NONE;
+            lastChildren[node] = NONE;
+            nextSiblings[node] = NONE;
+            coordinates[node] = coordinate;
+            scopes[node] = internScope(scope);
+            optionals[node] = optional;
+            exclusionStarts[node] = nodeExclusionCount;
+            exclusionCounts[node] = 0;
+
+            if (parent != NONE) {
+                if (parent >= node) {
+                    throw new IllegalArgumentException("Nodes must be added after their parent");
+                }
+                if (lastChildren[parent] == NONE) {
+                    firstChildren[parent] = node;
+                } else {
+                    nextSiblings[lastChildren[parent]] = node;
+                }
+                lastChildren[parent] = node;
+            }
+            return node;
+        }
+
+        private int internCoordinate(String groupId, String artifactId, String version, String classifier, String type, File file) {
+            String key = groupId + ':' + artifactId + ':' + version + ':' + classifier + ':' + type + ':' + (file == null ? "" : file.getPath());
+            Integer id = coordinateIds.get(key);
+            if (id == null) {
+                id = groupIds.size();
+                coordinateIds.put(key, id);
+                groupIds.add(intern(groupId));
+                artifactIds.add(intern(artifactId));
+                versions.add(intern(version));
+                classifiers.add(intern(classifier));
+                types.add(intern(type));
+                files.add(file);
+            }
+            return id;
+        }
+
+        private byte internScope(String scope) {
+            if (scope == null) {
+                return -1;
+            }
+            int index = scopeNames.indexOf(scope);
+            if (index < 0) {
+                index = scopeNames.size();
+                if (index > Byte.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct scopes");
+                }
+                scopeNames.add(scope);
+            }
+            return (byte) index;
+        }
+
+        private String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String interned = strings.get(value);
+            if (interned == null) {
+                strings.put(value, value);
+                interned = value;
+            }
+            return interned;
+        }
+
+        private void ensureCapacity() {
+            if (nodeCount == parents.length) {
+                int capacity = nodeCount * 2;
+                parents = Arrays.copyOf(parents, capacity);
+                firstChildren = Arrays.copyOf(firstChildren, capacity);
+                lastChildren = Arrays.copyOf(lastChildren, capacity);
+                nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+                coordinates = Arrays.copyOf(coordinates, capacity);
+                scopes = Arrays.copyOf(scopes, capacity);
+                optionals = Arrays.copyOf(optionals, capacity);
+                exclusionStarts = Arrays.copyOf(exclusionStarts, capacity);
+                exclusionCounts = Arrays.copyOf(exclusionCounts, capacity);
+            }
+        }
+    }
+}
@@ -35,6 +35,14 @@ public class DependencyGraphFactory {
         }
     }
 
+    public static CompactDependencyGraph getCompactDependencyGraph(MavenProject project, ProjectDependenciesResolver projectDependenciesResolver, MavenSession session) throws DependencyResolutionException {
+        if (isEclipseAetherLoaded) {
+            return new EclipseAetherDependencyGraphBuilder(project, projectDependenciesResolver, session).buildCompactGraph();
+        } else {
+            return new SonatypeAetherDependencyGraphBuilder(project, projectDependenciesResolver, session).buildCompactGraph();
+        }
+    }
+
     // prevent instantiation
     private DependencyGraphFactory() {}
 }
@@ -2,15 +2,31 @@ package org.whitesource.maven.utils.dependencies.impl.eclipse;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.*;
+import org.eclipse.aether.DefaultRepositoryCache;
+import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
 import org.whitesource.maven.utils.Invoker;
 import org.whitesource.maven.utils.dependencies.AetherDependencyNode;
+import org.whitesource.maven.utils.dependencies.CompactDependencyGraph;
+import org.whitesource.maven.utils.jfr.EventSpan;
+import org.whitesource.maven.utils.jfr.FlightRecorderEvents;
+
+import java.util.*;
 
 /**
  * Author: Itai Marko
  */
 public class EclipseAetherDependencyGraphBuilder {
 
+    private static final String TYPE = "type";
+    private static final String RESOLVER = "eclipse";
+
+    private static final Map<MavenSession, RepositorySystemSession> repositorySessions = new WeakHashMap<MavenSession, RepositorySystemSession>();
+
     private MavenProject project;
     private ProjectDependenciesResolver projectDependenciesResolver;
     private MavenSession session;
@@ -22,11 +38,83 @@ public class EclipseAetherDependencyGraphBuilder {
     }
 
     public AetherDependencyNode build() throws DependencyResolutionException {
+        return new EclipseAetherDependencyNode(resolve());
+    }
+
+    /**
+     * Resolve the project and convert its dependency graph straight into a {@link CompactDependencyGraph},
+     * without keeping any reference to the resolved graph.
+     */
+    public CompactDependencyGraph buildCompactGraph() throws DependencyResolutionException {
+        EventSpan span = FlightRecorderEvents.startDependencyGraph(project.getId(), RESOLVER);
+        try {
+            DependencyNode rootNode = (DependencyNode) Invoker.invoke(DependencyResolutionResult.class, resolve(), "getDependencyGraph");
+            CompactDependencyGraph graph = toCompactGraph(rootNode);
+            span.setCount(graph.getNodeCount());
+            return graph;
+        } finally {
+            span.end();
+        }
+    }
+
+    static CompactDependencyGraph toCompactGraph(DependencyNode rootNode) {
+        CompactDependencyGraph.Builder builder = new CompactDependencyGraph.Builder();
+
+        // depth first, children are pushed in reverse so they're added in order
+        Deque<DependencyNode> nodes = new ArrayDeque<DependencyNode>();
+        Deque<Integer> parents = new ArrayDeque<Integer>();
+        pushChildren(rootNode, CompactDependencyGraph.ROOT, nodes, parents);
+        while (!nodes.isEmpty()) {
+            DependencyNode node = nodes.pop();
+            int parent = parents.pop();
+
+            Dependency dependency = node.getDependency();
+            Artifact artifact = dependency.getArtifact();
+            int index = builder.addNode(parent, artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+                    artifact.getClassifier(), artifact.getProperty(TYPE, ""), artifact.getFile(),
+                    dependency.getScope(), dependency.isOptional());
+            for (Exclusion exclusion : dependency.getExclusions()) {
+                builder.addExclusion(index, exclusion.getGroupId(), exclusion.getArtifactId());
+            }
+            pushChildren(node, index, nodes, parents);
+        }
+        return builder.build();
+    }
+
+    private DependencyResolutionResult resolve() throws DependencyResolutionException {
         DependencyResolutionRequest request = new DefaultDependencyResolutionRequest();
         request.setMavenProject(project);
-        RepositorySystemSession repositorySystemSession = (RepositorySystemSession) Invoker.invoke(session, "getRepositorySession");
+        RepositorySystemSession repositorySystemSession = getRepositorySession(session);
         Invoker.invoke(request, "setRepositorySession", RepositorySystemSession.class, repositorySystemSession);
-        DependencyResolutionResult resolutionResult = projectDependenciesResolver.resolve(request);
-        return new EclipseAetherDependencyNode(resolutionResult);
+        return projectDependenciesResolver.resolve(request);
+    }
+
+    private static void pushChildren(DependencyNode node, int index, Deque<DependencyNode> nodes, Deque<Integer> parents) {
+        List<DependencyNode> children = node.getChildren();
+        for (ListIterator<DependencyNode> iterator = children.listIterator(children.size()); iterator.hasPrevious(); ) {
+            DependencyNode child = iterator.previous();
+            if (child.getDependency() != null) {
+                nodes.push(child);
+                parents.push(index);
+            }
+        }
+    }
+
+    /**
+     * All module resolutions of a maven session go through the same repository session,
+     * so they share its repository cache along with the data pool the dependency collector keeps in it.
+     */
+    private static RepositorySystemSession getRepositorySession(MavenSession session) {
+        synchronized (repositorySessions) {
+            RepositorySystemSession repositorySystemSession = repositorySessions.get(session);
+            if (repositorySystemSession == null) {
+                repositorySystemSession = (RepositorySystemSession) Invoker.invoke(session, "getRepositorySession");
+                if (repositorySystemSession.getCache() == null) {
+                    repositorySystemSession = new DefaultRepositorySystemSession(repositorySystemSession).setCache(new DefaultRepositoryCache());
+                }
+                repositorySessions.put(session, repositorySystemSession);
+            }
+            return repositorySystemSession;
+        }
     }
 }
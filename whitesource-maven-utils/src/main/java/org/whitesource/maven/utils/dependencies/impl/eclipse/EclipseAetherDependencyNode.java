@@ -23,7 +23,7 @@ public class EclipseAetherDependencyNode implements AetherDependencyNode {
         this((DependencyNode)Invoker.invoke(DependencyResolutionResult.class, dependencyResolutionResult, "getDependencyGraph"));
     }
 
-    private EclipseAetherDependencyNode(DependencyNode delegateDependencyNode) {
+    EclipseAetherDependencyNode(DependencyNode delegateDependencyNode) {
         this.delegate = delegateDependencyNode;
         Dependency delegateDependency = delegate.getDependency();
         this.dependency = delegateDependency == null ? null : new EclipseAetherDependency(delegateDependency);
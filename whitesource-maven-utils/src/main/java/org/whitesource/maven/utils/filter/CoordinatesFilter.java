@@ -0,0 +1,39 @@
+package org.whitesource.maven.utils.filter;
+
+/**
+ * Decides which artifacts to keep, by include and exclude {@link CoordinatesPatterns}.
+ *
+ * <p>
+ *     An artifact is accepted if it matches none of the excludes and, when includes are given, at least one of them.
+ * </p>
+ */
+public class CoordinatesFilter {
+
+    /* --- Private Members --- */
+
+    private final CoordinatesPatterns includes;
+    private final CoordinatesPatterns excludes;
+
+    /* --- Constructors --- */
+
+    public CoordinatesFilter(String[] includes, String[] excludes) {
+        this.includes = new CoordinatesPatterns(includes);
+        this.excludes = new CoordinatesPatterns(excludes);
+    }
+
+    /* --- Public methods --- */
+
+    public boolean accept(String groupId, String artifactId, String version) {
+        if (excludes.matches(groupId, artifactId, version)) {
+            return false;
+        }
+        return includes.isEmpty() || includes.matches(groupId, artifactId, version);
+    }
+
+    /**
+     * @return True if the filter accepts every artifact.
+     */
+    public boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty();
+    }
+}
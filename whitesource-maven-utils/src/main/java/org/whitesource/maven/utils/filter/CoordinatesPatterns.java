@@ -0,0 +1,150 @@
+package org.whitesource.maven.utils.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A set of precompiled coordinate patterns.
+ *
+ * <p>
+ *     A pattern has the form <code>groupId:artifactId:version</code>, where each part may use <code>*</code> as a wildcard.
+ *     Missing trailing parts match anything.
+ * </p>
+ * <p>
+ *     A pattern without a colon matches the artifactId only, and is a regular expression as it always was,
+ *     except that <code>.</code> is a literal dot and <code>*</code> a wildcard. Hence <code>foo-(api|impl)</code>
+ *     still matches both modules, and <code>*-tests</code> is the same as <code>*:*-tests:*</code>.
+ * </p>
+ */
+public class CoordinatesPatterns {
+
+    /* --- Static members --- */
+
+    private static final String WILDCARD = "*";
+
+    /**
+     * Regular expression characters, besides <code>.</code> and <code>*</code>, that make a colon-less pattern a regex.
+     */
+    private static final String REGEX_CHARACTERS = "\\[](){}?+^$|";
+
+    /* --- Private Members --- */
+
+    private final List<Segment[]> patterns = new ArrayList<Segment[]>();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param patterns Patterns to compile, null and blank patterns are ignored.
+     */
+    public CoordinatesPatterns(String[] patterns) {
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                if (pattern != null && pattern.trim().length() > 0) {
+                    this.patterns.add(compile(pattern.trim()));
+                }
+            }
+        }
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return True if any of the patterns matches the given coordinates.
+     */
+    public boolean matches(String groupId, String artifactId, String version) {
+        for (Segment[] pattern : patterns) {
+            if (pattern[0].matches(groupId) && pattern[1].matches(artifactId) && pattern[2].matches(version)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /* --- Private methods --- */
+
+    private static Segment[] compile(String pattern) {
+        String[] parts = pattern.split(":", -1);
+        Segment[] segments = new Segment[3];
+        if (parts.length == 1) {
+            segments[0] = Segment.ANY;
+            segments[1] = Segment.compileArtifactIdRegex(parts[0]);
+            segments[2] = Segment.ANY;
+        } else {
+            if (parts.length > segments.length) {
+                throw new IllegalArgumentException("Invalid pattern " + pattern + ", expected groupId:artifactId:version");
+            }
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = i < parts.length ? Segment.compile(parts[i]) : Segment.ANY;
+            }
+        }
+        return segments;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Matches a single part of the coordinates, literals are compared without a regular expression.
+     */
+    private static class Segment {
+
+        private static final Segment ANY = new Segment(null, null);
+
+        private final String literal;
+        private final Pattern regex;
+
+        private Segment(String literal, Pattern regex) {
+            this.literal = literal;
+            this.regex = regex;
+        }
+
+        private static Segment compile(String part) {
+            if (part.length() == 0 || WILDCARD.equals(part)) {
+                return ANY;
+            } else if (!part.contains(WILDCARD)) {
+                return new Segment(part, null);
+            }
+
+            StringBuilder regex = new StringBuilder();
+            int start = 0;
+            int index;
+            while ((index = part.indexOf(WILDCARD, start)) != -1) {
+                if (index > start) {
+                    regex.append(Pattern.quote(part.substring(start, index)));
+                }
+                regex.append(".*");
+                start = index + 1;
+            }
+            if (start < part.length()) {
+                regex.append(Pattern.quote(part.substring(start)));
+            }
+            return new Segment(null, Pattern.compile(regex.toString()));
+        }
+
+        /**
+         * Compiles a colon-less pattern the way module patterns always were, as a regex with literal dots and
+         * <code>*</code> wildcards. Patterns without any other regex character are compiled as usual.
+         */
+        private static Segment compileArtifactIdRegex(String part) {
+            for (int i = 0; i < part.length(); i++) {
+                if (REGEX_CHARACTERS.indexOf(part.charAt(i)) != -1) {
+                    return new Segment(null, Pattern.compile(part.replace(".", "\\.").replace("*", ".*")));
+                }
+            }
+            return compile(part);
+        }
+
+        private boolean matches(String value) {
+            if (literal != null) {
+                return literal.equals(value);
+            } else if (regex != null) {
+                return value != null && regex.matcher(value).matches();
+            }
+            return true;
+        }
+    }
+}
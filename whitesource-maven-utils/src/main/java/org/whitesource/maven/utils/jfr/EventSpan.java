@@ -0,0 +1,40 @@
+package org.whitesource.maven.utils.jfr;
+
+/**
+ * A timed operation reported to Java Flight Recorder once ended, see {@link FlightRecorderEvents}.
+ *
+ * <p>
+ *     Spans handed out while no recording is running, or on a JVM without Flight Recorder, do nothing.
+ * </p>
+ */
+public class EventSpan {
+
+    /* --- Static members --- */
+
+    public static final EventSpan NOOP = new EventSpan();
+
+    /* --- Constructors --- */
+
+    protected EventSpan() {
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Sets the number of items the operation produced, for events that have one.
+     */
+    public void setCount(long count) {
+    }
+
+    /**
+     * Sets whether the operation succeeded, for events that have an outcome.
+     */
+    public void setSuccess(boolean success) {
+    }
+
+    /**
+     * Ends the operation and commits its event if the recording asks for it.
+     */
+    public void end() {
+    }
+}
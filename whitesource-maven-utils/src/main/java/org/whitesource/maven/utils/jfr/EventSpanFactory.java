@@ -0,0 +1,22 @@
+package org.whitesource.maven.utils.jfr;
+
+import java.io.File;
+
+/**
+ * Creates the spans of the events, see {@link FlightRecorderEvents}.
+ *
+ * <p>
+ *     The Flight Recorder implementation needs jdk.jfr to compile, so it is only built by the jfr profile
+ *     and looked up by name at runtime.
+ * </p>
+ */
+public interface EventSpanFactory {
+
+    EventSpan startModule(String module);
+
+    EventSpan startDependencyGraph(String project, String resolver);
+
+    EventSpan startChecksum(File file);
+
+    EventSpan startServiceCall(String requestType, int projects);
+}
@@ -0,0 +1,75 @@
+package org.whitesource.maven.utils.jfr;
+
+import java.io.File;
+
+/**
+ * Starts the custom Java Flight Recorder events of the plugin.
+ *
+ * <p>
+ *     The events are only loaded if jdk.jfr.Event is, so this class is safe to use on any JVM.
+ *     They are built by the jfr profile only, active on JDK 11 and later, so a plugin built without it records nothing.
+ *     When no recording is running the spans returned are no-ops.
+ * </p>
+ */
+public final class FlightRecorderEvents {
+
+    /* --- Static members --- */
+
+    private static final String FACTORY_CLASS = "org.whitesource.maven.utils.jfr.impl.JfrEventSpanFactory";
+
+    private static final EventSpanFactory FACTORY = loadFactory();
+
+    /* --- Public methods --- */
+
+    /**
+     * @param module Id of the module processed.
+     */
+    public static EventSpan startModule(String module) {
+        return FACTORY == null ? EventSpan.NOOP : FACTORY.startModule(module);
+    }
+
+    /**
+     * @param project  Id of the project whose dependency graph is built.
+     * @param resolver Resolver API building the graph, eclipse or sonatype.
+     */
+    public static EventSpan startDependencyGraph(String project, String resolver) {
+        return FACTORY == null ? EventSpan.NOOP : FACTORY.startDependencyGraph(project, resolver);
+    }
+
+    /**
+     * @param file Artifact file hashed.
+     */
+    public static EventSpan startChecksum(File file) {
+        return FACTORY == null ? EventSpan.NOOP : FACTORY.startChecksum(file);
+    }
+
+    /**
+     * @param requestType Type of the request sent.
+     * @param projects    Number of projects in the request.
+     */
+    public static EventSpan startServiceCall(String requestType, int projects) {
+        return FACTORY == null ? EventSpan.NOOP : FACTORY.startServiceCall(requestType, projects);
+    }
+
+    /* --- Private methods --- */
+
+    private static EventSpanFactory loadFactory() {
+        ClassLoader classLoader = FlightRecorderEvents.class.getClassLoader();
+        try {
+            Class.forName("jdk.jfr.Event", false, classLoader);
+            // links the events against jdk.jfr
+            return (EventSpanFactory) Class.forName(FACTORY_CLASS, true, classLoader).newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (InstantiationException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    // prevent instantiation
+    private FlightRecorderEvents() {}
+}
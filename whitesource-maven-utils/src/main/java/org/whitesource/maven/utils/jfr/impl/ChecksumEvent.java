@@ -0,0 +1,17 @@
+package org.whitesource.maven.utils.jfr.impl;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.whitesource.maven.Checksum")
+@Label("Artifact Checksum")
+class ChecksumEvent extends PluginEvent {
+
+    @Label("Path")
+    String path;
+
+    @Label("Size")
+    @DataAmount
+    long size;
+}
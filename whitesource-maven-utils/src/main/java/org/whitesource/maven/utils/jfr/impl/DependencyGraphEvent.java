@@ -0,0 +1,26 @@
+package org.whitesource.maven.utils.jfr.impl;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.whitesource.maven.DependencyGraph")
+@Label("Dependency Graph")
+@Description("Resolution of the dependency graph of a project and its conversion into a compact graph")
+class DependencyGraphEvent extends PluginEvent {
+
+    @Label("Project")
+    String project;
+
+    @Label("Resolver")
+    @Description("Aether flavor resolving the graph")
+    String resolver;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Override
+    void setCount(long count) {
+        nodes = count;
+    }
+}
@@ -0,0 +1,87 @@
+package org.whitesource.maven.utils.jfr.impl;
+
+import org.whitesource.maven.utils.jfr.EventSpan;
+import org.whitesource.maven.utils.jfr.EventSpanFactory;
+
+import java.io.File;
+
+/**
+ * Creates the spans of the Flight Recorder events, only loaded when jdk.jfr is available.
+ */
+public final class JfrEventSpanFactory implements EventSpanFactory {
+
+    /* --- EventSpanFactory implementation --- */
+
+    @Override
+    public EventSpan startModule(String module) {
+        ModuleEvent event = new ModuleEvent();
+        if (!event.isEnabled()) {
+            return EventSpan.NOOP;
+        }
+        event.module = module;
+        return new JfrSpan(event);
+    }
+
+    @Override
+    public EventSpan startDependencyGraph(String project, String resolver) {
+        DependencyGraphEvent event = new DependencyGraphEvent();
+        if (!event.isEnabled()) {
+            return EventSpan.NOOP;
+        }
+        event.project = project;
+        event.resolver = resolver;
+        return new JfrSpan(event);
+    }
+
+    @Override
+    public EventSpan startChecksum(File file) {
+        ChecksumEvent event = new ChecksumEvent();
+        if (!event.isEnabled()) {
+            return EventSpan.NOOP;
+        }
+        event.path = file.getPath();
+        event.size = file.length();
+        return new JfrSpan(event);
+    }
+
+    @Override
+    public EventSpan startServiceCall(String requestType, int projects) {
+        ServiceCallEvent event = new ServiceCallEvent();
+        if (!event.isEnabled()) {
+            return EventSpan.NOOP;
+        }
+        event.requestType = requestType;
+        event.projects = projects;
+        return new JfrSpan(event);
+    }
+
+    /* --- Nested classes --- */
+
+    private static class JfrSpan extends EventSpan {
+
+        private final PluginEvent event;
+
+        private JfrSpan(PluginEvent event) {
+            this.event = event;
+            event.begin();
+        }
+
+        @Override
+        public void setCount(long count) {
+            event.setCount(count);
+        }
+
+        @Override
+        public void setSuccess(boolean success) {
+            event.setSuccess(success);
+        }
+
+        @Override
+        public void end() {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+}
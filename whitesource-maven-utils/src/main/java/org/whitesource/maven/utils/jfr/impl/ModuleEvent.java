@@ -0,0 +1,23 @@
+package org.whitesource.maven.utils.jfr.impl;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.whitesource.maven.Module")
+@Label("Module Processing")
+@Description("Resolution and conversion of the dependencies of a module")
+class ModuleEvent extends PluginEvent {
+
+    @Label("Module")
+    String module;
+
+    @Label("Dependencies")
+    @Description("Number of artifacts the module depends on")
+    long dependencies;
+
+    @Override
+    void setCount(long count) {
+        dependencies = count;
+    }
+}
@@ -0,0 +1,17 @@
+package org.whitesource.maven.utils.jfr.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+
+/**
+ * Base of the custom Java Flight Recorder events of the plugin.
+ */
+@Category({"WhiteSource", "Maven Plugin"})
+abstract class PluginEvent extends Event {
+
+    void setCount(long count) {
+    }
+
+    void setSuccess(boolean success) {
+    }
+}
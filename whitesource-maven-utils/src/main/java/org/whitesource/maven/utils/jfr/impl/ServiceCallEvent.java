@@ -0,0 +1,23 @@
+package org.whitesource.maven.utils.jfr.impl;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.whitesource.maven.ServiceCall")
+@Label("WhiteSource Service Call")
+class ServiceCallEvent extends PluginEvent {
+
+    @Label("Request Type")
+    String requestType;
+
+    @Label("Projects")
+    int projects;
+
+    @Label("Success")
+    boolean success;
+
+    @Override
+    void setSuccess(boolean success) {
+        this.success = success;
+    }
+}